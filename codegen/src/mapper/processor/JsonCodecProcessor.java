@@ -0,0 +1,321 @@
+package mapper.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+// Generates a mapper.JsonCodec for every @JsonSerializable class, named <Outer_Inner>JsonCodec in the same package.
+// The generated code touches fields directly, so binding and serialization need no reflection and no boxing.
+// @JsonSymbol is claimed too: it is read here, while generating the codec of the class whose field carries it.
+@SupportedAnnotationTypes({JsonCodecProcessor.ANNOTATION, JsonCodecProcessor.SYMBOL_ANNOTATION})
+public class JsonCodecProcessor extends AbstractProcessor {
+    static final String ANNOTATION = "mapper.JsonSerializable";
+    static final String SYMBOL_ANNOTATION = "mapper.JsonSymbol";
+
+    private static final String NULL_TOKEN = "mapper.JsonReader.Token.NULL";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            if (!annotation.getQualifiedName().contentEquals(ANNOTATION)) continue;
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@JsonSerializable can only be used on classes");
+                    continue;
+                }
+                TypeElement type = (TypeElement) element;
+                if (validate(type)) {
+                    try {
+                        generate(type);
+                    } catch (IOException e) {
+                        error(type, "Failed to generate codec: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // ========== VALIDATION ==========
+
+    private boolean validate(TypeElement type) {
+        boolean valid = true;
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.PRIVATE)) {
+            error(type, "@JsonSerializable class must be concrete and not private");
+            valid = false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            error(type, "@JsonSerializable nested class must be static");
+            valid = false;
+        }
+
+        boolean hasDefaultConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                hasDefaultConstructor = true;
+            }
+        }
+        if (!hasDefaultConstructor) {
+            error(type, "@JsonSerializable class needs a non-private no-arg constructor");
+            valid = false;
+        }
+
+        for (VariableElement field : fields(type)) {
+            if (field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.FINAL)) {
+                error(field, "Fields of a @JsonSerializable class must be non-private and non-final");
+                valid = false;
+            } else if (!isSupported(field.asType())) {
+                error(field, "Unsupported field type for a generated codec: " + field.asType());
+                valid = false;
+            } else if (isSymbol(field) && !typeName(field.asType()).equals("java.lang.String")) {
+                error(field, "@JsonSymbol can only be used on String fields");
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private boolean isSupported(TypeMirror type) {
+        if (type.getKind().isPrimitive()) return type.getKind() != TypeKind.CHAR && type.getKind() != TypeKind.BYTE && type.getKind() != TypeKind.SHORT;
+        if (isScalar(type) || isSerializableBean(type)) return true;
+        TypeMirror element = listElement(type);
+        return element != null && (isScalar(element) || isSerializableBean(element));
+    }
+
+    // ========== GENERATION ==========
+
+    private void generate(TypeElement type) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String codecName = codecSimpleName(type);
+        String beanName = type.getQualifiedName().toString();
+        List<VariableElement> fields = fields(type);
+
+        JavaFileObject file = processingEnv.getFiler()
+                .createSourceFile(packageName.isEmpty() ? codecName : packageName + "." + codecName, type);
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (!packageName.isEmpty()) out.println("package " + packageName + ";");
+            out.println();
+            out.println("// Generated by " + JsonCodecProcessor.class.getName() + " from " + beanName + ", do not edit");
+            out.println("public final class " + codecName + " implements mapper.JsonCodec<" + beanName + "> {");
+            out.println("    public static final " + codecName + " INSTANCE = new " + codecName + "();");
+            out.println();
+
+            // read
+            out.println("    @Override");
+            out.println("    public " + beanName + " read(mapper.JsonReader reader) throws mapper.JSONException {");
+            out.println("        if (reader.peek() == " + NULL_TOKEN + ") {");
+            out.println("            reader.nextNull();");
+            out.println("            return null;");
+            out.println("        }");
+            out.println("        " + beanName + " bean = new " + beanName + "();");
+            out.println("        reader.beginObject();");
+            out.println("        while (reader.hasNext()) {");
+            out.println("            String name = reader.nextName();");
+            out.println("            switch (name) {");
+            for (VariableElement field : fields) {
+                String name = field.getSimpleName().toString();
+                TypeMirror fieldType = field.asType();
+                out.println("                case \"" + name + "\":");
+                out.println("                    if (reader.peek() == " + NULL_TOKEN + ") {");
+                out.println("                        reader.nextNull();");
+                if (!fieldType.getKind().isPrimitive()) {
+                    out.println("                        bean." + name + " = null;");
+                }
+                out.println("                    } else {");
+                String value = listElement(fieldType) != null ? "read_" + name + "(reader)"
+                        : isSymbol(field) ? "reader.nextSymbol()"
+                        : readExpression(fieldType);
+                out.println("                        bean." + name + " = " + value + ";");
+                out.println("                    }");
+                out.println("                    break;");
+            }
+            out.println("                default:");
+            out.println("                    reader.skipValue();");
+            out.println("            }");
+            out.println("        }");
+            out.println("        reader.endObject();");
+            out.println("        return bean;");
+            out.println("    }");
+            out.println();
+
+            // write
+            out.println("    @Override");
+            out.println("    public void write(mapper.JsonWriter writer, " + beanName + " value) throws mapper.JSONException {");
+            out.println("        if (value == null) {");
+            out.println("            writer.nullValue();");
+            out.println("            return;");
+            out.println("        }");
+            out.println("        writer.beginObject();");
+            for (VariableElement field : fields) {
+                String name = field.getSimpleName().toString();
+                out.println("        writer.name(\"" + name + "\");");
+                if (listElement(field.asType()) != null) {
+                    out.println("        write_" + name + "(writer, value." + name + ");");
+                } else {
+                    out.println("        " + writeStatement(field.asType(), "value." + name));
+                }
+            }
+            out.println("        writer.endObject();");
+            out.println("    }");
+
+            // list helpers
+            for (VariableElement field : fields) {
+                TypeMirror element = listElement(field.asType());
+                if (element == null) continue;
+                String name = field.getSimpleName().toString();
+                String elementName = typeName(element);
+
+                out.println();
+                out.println("    private static java.util.List<" + elementName + "> read_" + name + "(mapper.JsonReader reader) throws mapper.JSONException {");
+                out.println("        java.util.List<" + elementName + "> list = new java.util.ArrayList<>();");
+                out.println("        reader.beginArray();");
+                out.println("        while (reader.hasNext()) {");
+                out.println("            if (reader.peek() == " + NULL_TOKEN + ") {");
+                out.println("                reader.nextNull();");
+                out.println("                list.add(null);");
+                out.println("            } else {");
+                out.println("                list.add(" + readExpression(element) + ");");
+                out.println("            }");
+                out.println("        }");
+                out.println("        reader.endArray();");
+                out.println("        return list;");
+                out.println("    }");
+                out.println();
+                out.println("    private static void write_" + name + "(mapper.JsonWriter writer, java.util.List<" + elementName + "> list) throws mapper.JSONException {");
+                out.println("        if (list == null) {");
+                out.println("            writer.nullValue();");
+                out.println("            return;");
+                out.println("        }");
+                out.println("        writer.beginArray();");
+                out.println("        for (" + elementName + " element : list) {");
+                out.println("            " + writeStatement(element, "element"));
+                out.println("        }");
+                out.println("        writer.endArray();");
+                out.println("    }");
+            }
+            out.println("}");
+        }
+    }
+
+    // Expression reading a non-null value of the given type from 'reader'
+    private String readExpression(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT: return "reader.nextInt()";
+            case LONG: return "reader.nextLong()";
+            case DOUBLE: return "reader.nextDouble()";
+            case FLOAT: return "(float) reader.nextDouble()";
+            case BOOLEAN: return "reader.nextBoolean()";
+            default:
+                switch (typeName(type)) {
+                    case "java.lang.String": return "reader.nextString()";
+                    case "java.lang.Integer": return "Integer.valueOf(reader.nextInt())";
+                    case "java.lang.Long": return "Long.valueOf(reader.nextLong())";
+                    case "java.lang.Double": return "Double.valueOf(reader.nextDouble())";
+                    case "java.lang.Float": return "Float.valueOf((float) reader.nextDouble())";
+                    case "java.lang.Boolean": return "Boolean.valueOf(reader.nextBoolean())";
+                    default: return codecReference(type) + ".read(reader)";
+                }
+        }
+    }
+
+    private String writeStatement(TypeMirror type, String value) {
+        if (type.getKind().isPrimitive()) return "writer.value(" + value + ");";
+        switch (typeName(type)) {
+            case "java.lang.String": return "writer.value(" + value + ");";
+            case "java.lang.Boolean":
+                return "if (" + value + " == null) writer.nullValue(); else writer.value(" + value + ".booleanValue());";
+            case "java.lang.Integer": case "java.lang.Long": case "java.lang.Double": case "java.lang.Float":
+                return "writer.value((Number) " + value + ");";
+            default: return codecReference(type) + ".write(writer, " + value + ");";
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    private List<VariableElement> fields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) continue;
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    private boolean isScalar(TypeMirror type) {
+        switch (typeName(type)) {
+            case "java.lang.String": case "java.lang.Integer": case "java.lang.Long":
+            case "java.lang.Double": case "java.lang.Float": case "java.lang.Boolean":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isSymbol(VariableElement field) {
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(SYMBOL_ANNOTATION)) return true;
+        }
+        return false;
+    }
+
+    private boolean isSerializableBean(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) return false;
+        Element element = ((DeclaredType) type).asElement();
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(ANNOTATION)) return true;
+        }
+        return false;
+    }
+
+    // Element type of java.util.List<E>, or null when the type is not a list
+    private TypeMirror listElement(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) return null;
+        DeclaredType declared = (DeclaredType) type;
+        String raw = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+        if (!raw.equals("java.util.List") || declared.getTypeArguments().size() != 1) return null;
+        return declared.getTypeArguments().get(0);
+    }
+
+    private String typeName(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private String codecReference(TypeMirror type) {
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String packageName = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+        String codec = codecSimpleName(element) + ".INSTANCE";
+        return packageName.isEmpty() ? codec : packageName + "." + codec;
+    }
+
+    // classes.Product.RequiredItem -> Product_RequiredItemJsonCodec, matching ObjectMapper's lookup by binary name
+    private static String codecSimpleName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement outer) {
+            name.insert(0, outer.getSimpleName() + "_");
+            enclosing = outer.getEnclosingElement();
+        }
+        return name.append("JsonCodec").toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
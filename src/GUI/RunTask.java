@@ -1,6 +1,5 @@
 package GUI;
 
-import classes.Product;
 import classes.ProductionLine;
 import mapper.JSONException;
 
@@ -10,41 +9,62 @@ public class RunTask extends Thread {
     @Override
     public void run() {
         while (true) {
-            for (ProductionLine pl : inventory.productionLines) {
-                for (ProductionLine.Task task : pl.tasks) {
-                    if (task.progress > 100 && !task.state.equals("completed")) {
-                        task.progress = 100;
-                        task.state = "completed";
+            boolean anyOngoing = false;
 
+            for (ProductionLine.Task task : inventory.getAllTasks()) {
+                if (task.state.equals("completed") || (!task.state.equals("ongoing") && task.progress <= 100)) {
+                    continue; // nothing to do, so no lock, no journal record
+                }
 
-                        try {
-                            for (Product.RequiredItem item : inventory.findProductByName(task.productName).requiredItems) {
-                                inventory.findItemByName(item.item).stock -= item.quantity * task.quantity;
-                            }
-
-                            inventory.saveAll();
-                        } catch (JSONException e) {
-                            System.out.println(e.getMessage());
-                        }
-
-                    } else if (task.state.equals("ongoing")) {
-                        task.progress += 2;
-                        System.out.println(task.productName + " : " + task.progress);
-
-                        try {
-                            inventory.saveProductionLines();
-                        } catch (JSONException e) {
-                            System.out.println(e.getMessage());
+                // decided again under the inventory's lock, so edits from the GUI in between are not lost; what
+                // the task used is read there too, since the GUI may change product or quantity
+                boolean[] completed = {false};
+                String[] productName = {null};
+                int[] quantity = {0};
+                boolean ongoing = false;
+                try {
+                    ongoing = inventory.editTask(task.id, t -> {
+                        if (t.progress > 100 && !t.state.equals("completed")) {
+                            t.progress = 100;
+                            t.state = "completed";
+                            completed[0] = true;
+                            productName[0] = t.productName;
+                            quantity[0] = t.quantity;
+                            return true;
                         }
-                        try {
-                            Thread.sleep(2000);
-                        } catch (InterruptedException e) {
-                            System.out.println(e.getMessage());
+                        if (t.state.equals("ongoing")) {
+                            t.progress += 2;
+                            return true;
                         }
+                        return false;
+                    }) && !completed[0];
+                } catch (JSONException e) {
+                    System.out.println(e.getMessage());
+                }
 
+                if (completed[0]) {
+                    try {
+                        inventory.takeStockFor(productName[0], quantity[0]);
+                    } catch (JSONException e) {
+                        System.out.println(e.getMessage());
                     }
+
+                } else if (ongoing) {
+                    anyOngoing = true;
+                    System.out.println(task.productName + " : " + task.progress);
+                    pause();
                 }
             }
+
+            if (!anyOngoing) pause(); // nothing running, wait before looking again
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(2000);
+        } catch (InterruptedException e) {
+            System.out.println(e.getMessage());
         }
     }
 }
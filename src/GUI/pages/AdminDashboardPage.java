@@ -75,7 +75,7 @@ public class AdminDashboardPage extends JFrame {
     private void fillProductionLinesTable() {
         productionLinesTable.clearData(); // clear table state
 
-        for (ProductionLine pl: inventory.productionLines) {
+        for (ProductionLine pl: inventory.getProductionLines()) {
             Object[] plData = {pl.id, pl.name, pl.state, pl.notes};
             productionLinesTable.addRow(plData);
         }
@@ -117,11 +117,15 @@ public class AdminDashboardPage extends JFrame {
 
         PrimaryButton saveButton = new PrimaryButton("Save", e -> {
             if (!name.getText().isEmpty()) {
+                if (inventory.productionLineNameExists(name.getText())) {
+                    name.setError(true, "A production line with this name already exists");
+                    return;
+                }
                 dialog.hide(); // close dialog
 
                 // save form data
                 ProductionLine newProductionLine = new ProductionLine(
-                    inventory.productionLineMaxId + 1,
+                    inventory.nextProductionLineId(),
                     name.getText(),
                     state.getSelectedValue(),
                     notes.getText()
@@ -219,14 +223,24 @@ public class AdminDashboardPage extends JFrame {
 
             PrimaryButton saveButton = new PrimaryButton("Save", e -> {
                 if (!name.getText().isEmpty()) {
+                    ProductionLine sameName = inventory.findProductionLineByName(name.getText());
+                    if (sameName != null && sameName != selectedProductionLine) {
+                        name.setError(true, "A production line with this name already exists");
+                        return;
+                    }
                     dialog.hide(); // close dialog
-                    // save form data
-                    selectedProductionLine.name = name.getText();
-                    selectedProductionLine.notes = notes.getText();
-                    selectedProductionLine.state = state.getSelectedValue();
+                    // save form data, under the production lines lock
+                    String newName = name.getText();
+                    String newNotes = notes.getText();
+                    String newState = state.getSelectedValue();
 
                     try {
-                        inventory.saveProductionLines();
+                        inventory.editProductionLine(selectedProductionLine.id, line -> {
+                            line.name = newName;
+                            line.notes = newNotes;
+                            line.state = newState;
+                            return true;
+                        });
                     } catch (JSONException exception) {
                         System.out.println(exception.getMessage());
                     }
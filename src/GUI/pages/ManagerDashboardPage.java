@@ -4,15 +4,19 @@ import GUI.RunTask;
 import GUI.components.*;
 import GUI.components.Dialog;
 import GUI.lib.RequiredValidator;
+import classes.Attributes;
 import classes.Item;
+import classes.Page;
 import classes.Product;
 import classes.ProductionLine;
+import classes.Query;
 import mapper.JSONException;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.util.HashMap;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import static GUI.GUI.inventory;
@@ -43,6 +47,10 @@ public class ManagerDashboardPage extends JFrame {
     DataTable table = new DataTable(productionLinesTableColumnNames);
     HashMap<String, String> filters = new HashMap<>();
 
+    // Tasks and items are loaded a page at a time; the cursor continues the current table
+    static final int PAGE_SIZE = 100;
+    String nextPageCursor;
+
     // Navigation buttons
     SecondaryButton items = new SecondaryButton("Items",
     e -> {
@@ -101,6 +109,14 @@ public class ManagerDashboardPage extends JFrame {
         }
     }
     );
+    SecondaryButton loadMore = new SecondaryButton("Load more",
+    e -> {
+        switch (activeTap) {
+            case "tasks" -> appendTasksPage();
+            case "items" -> appendItemsPage();
+        }
+    }
+    );
     PrimaryButton filter = new PrimaryButton("Filter",
     e -> openFiltersDialog()
     );
@@ -139,6 +155,7 @@ public class ManagerDashboardPage extends JFrame {
         // Action Buttons panel
         actionButtonsPanel.setLayout(new FlowLayout(FlowLayout.RIGHT)); // Flow layout manager
         actionButtonsPanel.setBackground(new Color(9, 9, 11)); // change background color
+        actionButtonsPanel.add(loadMore);
         actionButtonsPanel.add(filter);
         actionButtonsPanel.add(removeFilters);
         actionButtonsPanel.add(checkInfo);
@@ -163,20 +180,16 @@ public class ManagerDashboardPage extends JFrame {
         table.clearData(); // clear table state
         table.setData(productionLinesTableColumnNames); // set columns for production lines table
         activeTap = "production lines";
+        loadMore.setEnabled(false);
 
-        for (ProductionLine pl: inventory.productionLines) {
-            Object[] plData = {pl.id, pl.name, pl.state, pl.notes};
+        String productName = filters.get("product name");
+        List<ProductionLine> productionLines = productName.isEmpty()
+                ? inventory.getProductionLines()
+                : inventory.findProductionLinesWithProduct(productName);
 
-            if (filters.get("product name").isEmpty()) {
-                table.addRow(plData);
-            } else {
-                for (ProductionLine.Task task : pl.tasks) {
-                    if (task.productName.equals(filters.get("product name"))){
-                        table.addRow(plData);
-                        break;
-                    }
-                }
-            }
+        for (ProductionLine pl : productionLines) {
+            Object[] plData = {pl.id, pl.name, pl.state, pl.notes};
+            table.addRow(plData);
         }
     }
 
@@ -185,32 +198,43 @@ public class ManagerDashboardPage extends JFrame {
         table.clearData(); // clear table state
         table.setData(tasksTableColumnNames); // set columns for tasks table
         activeTap = "tasks";
+        nextPageCursor = null;
+        appendTasksPage();
+    }
 
-        for (ProductionLine pl : inventory.productionLines) {
-            for (ProductionLine.Task task : pl.tasks) {
-                Object[] taskData = {
-                        task.id, task.productName,
-                        task.quantity,
-                        task.customer,
-                        task.startingDate + " to " + task.finishingDate,
-                        task.state,
-                        task.progress
-                };
-
-                boolean productionLineNameFilter = filters.get("production line name").isEmpty() ||
-                        pl.name.equals(filters.get("production line name"));
-
-                boolean productNameFilter = filters.get("product name").isEmpty() ||
-                        task.productName.equals(filters.get("product name"));
-
-                boolean taskStateFilter = filters.get("task state").equals("all") ||
-                        task.state.equals(filters.get("task state"));
-
-                if (productionLineNameFilter && productNameFilter && taskStateFilter) {
-                    table.addRow(taskData);
-                }
+    private void appendTasksPage() {
+        String productionLineName = filters.get("production line name");
+        String productName = filters.get("product name");
+        String taskState = filters.get("task state");
+
+        // all three filters are answered together by the inventory's task bitmaps; those ignore case, while the
+        // dashboard matches exactly, so each page is narrowed once more below
+        Query<ProductionLine.Task> query = inventory.tasks();
+        if (!productionLineName.isEmpty()) query.where(Attributes.Tasks.PRODUCTION_LINE_NAME.eq(productionLineName));
+        if (!productName.isEmpty()) query.where(Attributes.Tasks.PRODUCT_NAME.eq(productName));
+        if (!taskState.equals("all")) query.where(Attributes.Tasks.STATE.eq(taskState));
+
+        Page<ProductionLine.Task> page = query.page(PAGE_SIZE, nextPageCursor);
+        for (ProductionLine.Task task : page.items) {
+            if (!productionLineName.isEmpty()) {
+                ProductionLine pl = inventory.findProductionLineByTaskId(task.id);
+                if (pl == null || !pl.name.equals(productionLineName)) continue;
             }
+            if (!productName.isEmpty() && !productName.equals(task.productName)) continue;
+            if (!taskState.equals("all") && !taskState.equals(task.state)) continue;
+
+            Object[] taskData = {
+                    task.id, task.productName,
+                    task.quantity,
+                    task.customer,
+                    task.startingDate + " to " + task.finishingDate,
+                    task.state,
+                    task.progress
+            };
+            table.addRow(taskData);
         }
+        nextPageCursor = page.nextCursor;
+        loadMore.setEnabled(page.hasNext());
     }
 
     // fill items table with data from inventory
@@ -218,23 +242,32 @@ public class ManagerDashboardPage extends JFrame {
         table.clearData(); // clear table state
         table.setData(itemsTableColumnNames); // set columns for items table
         activeTap = "items";
+        nextPageCursor = null;
+        appendItemsPage();
+    }
 
-        for (Item item : inventory.items) {
-            Object[] itemData = {item.id, item.name, item.category, item.price, item.stock, item.minimumStock};
-
-            boolean itemNameFilter = filters.get("item name").isEmpty() ||
-                    item.name.equals(filters.get("item name"));
+    private void appendItemsPage() {
+        String itemName = filters.get("item name");
+        String itemCategory = filters.get("item category");
+        String itemAvailability = filters.get("item availability");
 
-            boolean itemCategoryFilter = filters.get("item category").isEmpty() ||
-                    item.category.equals(filters.get("item category"));
+        // name and category are answered by the inventory indexes, availability is checked on their result; the
+        // indexes ignore case, while the dashboard matches exactly, so each page is narrowed once more below
+        Query<Item> query = inventory.items();
+        if (!itemName.isEmpty()) query.where(Attributes.Items.NAME.eq(itemName));
+        if (!itemCategory.isEmpty()) query.where(Attributes.Items.CATEGORY.eq(itemCategory));
+        if (!itemAvailability.equals("all")) query.where(Attributes.Items.AVAILABILITY.eq(itemAvailability));
 
-            boolean itemAvailabilityFilter = filters.get("item availability").equals("all") ||
-                    item.getAvailability().equals(filters.get("item availability"));
+        Page<Item> page = query.page(PAGE_SIZE, nextPageCursor);
+        for (Item item : page.items) {
+            if (!itemName.isEmpty() && !itemName.equals(item.name)) continue;
+            if (!itemCategory.isEmpty() && !itemCategory.equals(item.category)) continue;
 
-            if (itemNameFilter && itemCategoryFilter && itemAvailabilityFilter) {
-                table.addRow(itemData);
-            }
+            Object[] itemData = {item.id, item.name, item.category, item.price, item.stock, item.minimumStock};
+            table.addRow(itemData);
         }
+        nextPageCursor = page.nextCursor;
+        loadMore.setEnabled(page.hasNext());
     }
 
     // fill items table with data from inventory
@@ -242,8 +275,9 @@ public class ManagerDashboardPage extends JFrame {
         table.clearData(); // clear table state
         table.setData(productsTableColumnNames); // set columns for items table
         activeTap = "products";
+        loadMore.setEnabled(false);
 
-        for (Product product : inventory.products) {
+        for (Product product : inventory.getProducts()) {
             Object[] productData = {
                 product.id,
                 product.name,
@@ -425,10 +459,14 @@ public class ManagerDashboardPage extends JFrame {
                         !price.getText().isEmpty() || !stock.getText().isEmpty() ||
                         !minimumStock.getText().isEmpty()) {
 
+                        if (inventory.itemNameExists(name.getText())) {
+                            name.setError(true, "An item with this name already exists");
+                            return;
+                        }
 
                         try {
                             Item newItem = new Item(
-                                inventory.itemMaxId + 1,
+                                inventory.nextItemId(),
                                 name.getText(),
                                 category.getText(),
                                 Double.parseDouble(price.getText()),
@@ -498,7 +536,7 @@ public class ManagerDashboardPage extends JFrame {
 
                         try {
                             ProductionLine.Task newTask = new ProductionLine.Task(
-                                    inventory.taskMaxId + 1,
+                                    inventory.nextTaskId(),
                                     productName.getText(),
                                     Integer.parseInt(quantity.getText()),
                                     customer.getText(),
@@ -680,15 +718,29 @@ public class ManagerDashboardPage extends JFrame {
                                 !price.getText().isEmpty() || !stock.getText().isEmpty() ||
                                 !minimumStock.getText().isEmpty()) {
 
+                            Item sameName = inventory.findItemByName(name.getText());
+                            if (sameName != null && sameName != selectedItem) {
+                                name.setError(true, "An item with this name already exists");
+                                return;
+                            }
+
                             try {
-                                selectedItem.name = name.getText();
-                                selectedItem.category = category.getText();
-                                selectedItem.price = Double.parseDouble(price.getText());
-                                selectedItem.stock = Integer.parseInt(stock.getText());
-                                selectedItem.minimumStock = Integer.parseInt(minimumStock.getText());
+                                String newName = name.getText();
+                                String newCategory = category.getText();
+                                double newPrice = Double.parseDouble(price.getText());
+                                int newStock = Integer.parseInt(stock.getText());
+                                int newMinimumStock = Integer.parseInt(minimumStock.getText());
 
+                                // applied under the items lock, so stock taken by the simulator meanwhile is not lost
                                 try {
-                                    inventory.saveItems();
+                                    inventory.editItem(selectedItemId, item -> {
+                                        item.name = newName;
+                                        item.category = newCategory;
+                                        item.price = newPrice;
+                                        item.stock = newStock;
+                                        item.minimumStock = newMinimumStock;
+                                        return true;
+                                    });
                                 } catch (JSONException exception) {
                                     System.out.println(exception.getMessage());
                                 }
@@ -762,15 +814,24 @@ public class ManagerDashboardPage extends JFrame {
                                 !customer.getText().isEmpty() || !startDate.getText().isEmpty() ||
                                 !finishDate.getText().isEmpty()) {
 
-                            selectedTask.productName = productName.getText();
-                            selectedTask.quantity = Integer.parseInt(quantity.getText());
-                            selectedTask.customer = customer.getText();
-                            selectedTask.startingDate = startDate.getText();
-                            selectedTask.finishingDate = finishDate.getText();
-                            selectedTask.state = state.getSelectedValue();
+                            String newProductName = productName.getText();
+                            int newQuantity = Integer.parseInt(quantity.getText());
+                            String newCustomer = customer.getText();
+                            String newStartingDate = startDate.getText();
+                            String newFinishingDate = finishDate.getText();
+                            String newState = state.getSelectedValue();
 
+                            // applied under the production lines lock, together with the simulator's progress updates
                             try {
-                                inventory.saveProductionLines();
+                                inventory.editTask(selectedTaskId, task -> {
+                                    task.productName = newProductName;
+                                    task.quantity = newQuantity;
+                                    task.customer = newCustomer;
+                                    task.startingDate = newStartingDate;
+                                    task.finishingDate = newFinishingDate;
+                                    task.state = newState;
+                                    return true;
+                                });
                             } catch (JSONException ex) {
                                 throw new RuntimeException(ex);
                             }
@@ -0,0 +1,85 @@
+package classes;
+
+import java.util.*;
+
+// A queryable field of an inventory entity. Conditions built from it are evaluated on entities during a scan, or
+// answered from an index when the entity's QuerySource has one for the attribute.
+// Text compares like the finders always have, ignoring case.
+public final class Attribute<T, V extends Comparable<? super V>> {
+    interface Getter<T, V> {
+        V get(Inventory inventory, T entity);
+    }
+
+    private final String name;
+    private final Getter<T, V> getter;
+
+    Attribute(String name, Getter<T, V> getter) {
+        this.name = name;
+        this.getter = getter;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // ========== CONDITIONS ==========
+
+    public Condition<T> eq(V value) {
+        return new Condition.Equals<>(this, normalize(value));
+    }
+
+    public Condition<T> ne(V value) {
+        return eq(value).not();
+    }
+
+    @SafeVarargs
+    public final Condition<T> in(V... values) {
+        Set<V> normalized = new LinkedHashSet<>();
+        for (V value : values) normalized.add(normalize(value));
+        return new Condition.In<>(this, normalized);
+    }
+
+    public Condition<T> lt(V value) {
+        return new Condition.Range<>(this, null, false, normalize(value), false);
+    }
+
+    public Condition<T> le(V value) {
+        return new Condition.Range<>(this, null, false, normalize(value), true);
+    }
+
+    public Condition<T> gt(V value) {
+        return new Condition.Range<>(this, normalize(value), false, null, false);
+    }
+
+    public Condition<T> ge(V value) {
+        return new Condition.Range<>(this, normalize(value), true, null, false);
+    }
+
+    // Inclusive at both ends
+    public Condition<T> between(V from, V to) {
+        return new Condition.Range<>(this, normalize(from), true, normalize(to), true);
+    }
+
+    // ========== VALUES ==========
+
+    // The entity's value in the form conditions compare against
+    V valueOf(Inventory inventory, T entity) {
+        return normalize(getter.get(inventory, entity));
+    }
+
+    // Nulls sort last
+    Comparator<T> comparator(Inventory inventory) {
+        return Comparator.comparing(entity -> valueOf(inventory, entity),
+                Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private V normalize(V value) {
+        return value instanceof String text ? (V) InventoryIndexes.normalize(text) : value;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
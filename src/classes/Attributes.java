@@ -0,0 +1,72 @@
+package classes;
+
+import java.time.LocalDate;
+
+// Queryable attributes of each entity, for Inventory's tasks(), items(), products() and productionLines() queries
+public final class Attributes {
+    private Attributes() {}
+
+    public static final class Tasks {
+        public static final Attribute<ProductionLine.Task, Integer> ID =
+                new Attribute<>("id", (inventory, task) -> task.id);
+        public static final Attribute<ProductionLine.Task, Integer> PRODUCTION_LINE_ID =
+                new Attribute<>("productionLineId", (inventory, task) -> {
+                    ProductionLine line = inventory.findProductionLineByTaskId(task.id);
+                    return line == null ? null : line.id;
+                });
+        public static final Attribute<ProductionLine.Task, String> PRODUCTION_LINE_NAME =
+                new Attribute<>("productionLineName", (inventory, task) -> {
+                    ProductionLine line = inventory.findProductionLineByTaskId(task.id);
+                    return line == null ? null : line.name;
+                });
+        public static final Attribute<ProductionLine.Task, String> PRODUCT_NAME =
+                new Attribute<>("productName", (inventory, task) -> task.productName);
+        public static final Attribute<ProductionLine.Task, Integer> QUANTITY =
+                new Attribute<>("quantity", (inventory, task) -> task.quantity);
+        public static final Attribute<ProductionLine.Task, String> CUSTOMER =
+                new Attribute<>("customer", (inventory, task) -> task.customer);
+        public static final Attribute<ProductionLine.Task, LocalDate> STARTING_DATE =
+                new Attribute<>("startingDate", (inventory, task) -> task.getStartingDate());
+        public static final Attribute<ProductionLine.Task, LocalDate> FINISHING_DATE =
+                new Attribute<>("finishingDate", (inventory, task) -> task.getFinishingDate());
+        public static final Attribute<ProductionLine.Task, String> STATE =
+                new Attribute<>("state", (inventory, task) -> task.state);
+        public static final Attribute<ProductionLine.Task, Double> PROGRESS =
+                new Attribute<>("progress", (inventory, task) -> task.progress);
+
+        private Tasks() {}
+    }
+
+    public static final class Items {
+        public static final Attribute<Item, Integer> ID = new Attribute<>("id", (inventory, item) -> item.id);
+        public static final Attribute<Item, String> NAME = new Attribute<>("name", (inventory, item) -> item.name);
+        public static final Attribute<Item, String> CATEGORY =
+                new Attribute<>("category", (inventory, item) -> item.category);
+        public static final Attribute<Item, Double> PRICE = new Attribute<>("price", (inventory, item) -> item.price);
+        public static final Attribute<Item, Integer> STOCK = new Attribute<>("stock", (inventory, item) -> item.stock);
+        public static final Attribute<Item, Integer> MINIMUM_STOCK =
+                new Attribute<>("minimumStock", (inventory, item) -> item.minimumStock);
+        public static final Attribute<Item, String> AVAILABILITY =
+                new Attribute<>("availability", (inventory, item) -> item.getAvailability());
+
+        private Items() {}
+    }
+
+    public static final class Products {
+        public static final Attribute<Product, Integer> ID = new Attribute<>("id", (inventory, product) -> product.id);
+        public static final Attribute<Product, String> NAME =
+                new Attribute<>("name", (inventory, product) -> product.name);
+
+        private Products() {}
+    }
+
+    public static final class ProductionLines {
+        public static final Attribute<ProductionLine, Integer> ID = new Attribute<>("id", (inventory, line) -> line.id);
+        public static final Attribute<ProductionLine, String> NAME =
+                new Attribute<>("name", (inventory, line) -> line.name);
+        public static final Attribute<ProductionLine, String> STATE =
+                new Attribute<>("state", (inventory, line) -> line.state);
+
+        private ProductionLines() {}
+    }
+}
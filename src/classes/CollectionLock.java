@@ -0,0 +1,129 @@
+package classes;
+
+import mapper.JSONException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+// Guards one of the inventory's collections, together with its indexes. Inventory holds one per collection (a
+// striped lock), so a writer only blocks readers and writers of its own collection.
+//
+// - read() takes the read lock, for lookups, scans, queries and anything that walks a list. Readers never block
+//   each other. The indexes are plain maps and probe tables that a writer may be resizing, so no lookup runs
+//   without the lock.
+// - write() takes the exclusive write lock.
+// A thread that already holds the lock, for reading or writing, reads again without locking, so a mutation may use
+// the finders and a query's attributes may look up other entities. A thread must not take a lock of another
+// collection that comes earlier in Inventory's lock order. Not reentrant for writes.
+// StampedLock lets new readers overtake a waiting writer, so under a steady stream of readers a writer could wait
+// forever; readers arriving while a writer waits therefore hold back briefly.
+final class CollectionLock {
+    interface Action {
+        void run() throws JSONException;
+    }
+
+    // Bounded, so a reader never waits for long on a writer that is itself waiting for another lock
+    private static final long READER_BACKOFF_NANOS = 10_000_000L;
+
+    private final StampedLock lock = new StampedLock();
+    private final AtomicInteger waitingWriters = new AtomicInteger();
+    private final ThreadLocal<int[]> readHolds = ThreadLocal.withInitial(() -> new int[1]); // per thread
+    private volatile Thread writer; // holds the write lock
+
+    <T> T read(Supplier<T> read) {
+        if (writer == Thread.currentThread()) return read.get();
+        int[] holds = readHolds.get();
+        if (holds[0] > 0) return read.get();
+
+        long stamp = readLock();
+        holds[0]++;
+        try {
+            return read.get();
+        } finally {
+            holds[0]--;
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void read(Runnable read) {
+        read(() -> {
+            read.run();
+            return null;
+        });
+    }
+
+    // read() for work that can fail, such as writing the collection to its file
+    void readChecked(Action read) throws JSONException {
+        if (writer == Thread.currentThread()) {
+            read.run();
+            return;
+        }
+        int[] holds = readHolds.get();
+        if (holds[0] > 0) {
+            read.run();
+            return;
+        }
+
+        long stamp = readLock();
+        holds[0]++;
+        try {
+            read.run();
+        } finally {
+            holds[0]--;
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void write(Action mutation) throws JSONException {
+        long stamp;
+        waitingWriters.incrementAndGet();
+        try {
+            stamp = lock.writeLock();
+        } finally {
+            waitingWriters.decrementAndGet();
+        }
+        writer = Thread.currentThread();
+        try {
+            mutation.run();
+        } finally {
+            writer = null;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private long readLock() {
+        if (waitingWriters.get() > 0) {
+            long deadline = System.nanoTime() + READER_BACKOFF_NANOS;
+            while (waitingWriters.get() > 0 && System.nanoTime() - deadline < 0) LockSupport.parkNanos(50_000L);
+        }
+        return lock.readLock();
+    }
+
+    // Takes the write locks in the order given, which must be Inventory's lock order
+    static void writeAll(Action mutation, CollectionLock... locks) throws JSONException {
+        writeAll(mutation, locks, 0);
+    }
+
+    // Takes the read locks in the order given, which must be Inventory's lock order
+    static void readAll(Runnable read, CollectionLock... locks) {
+        readAll(read, locks, 0);
+    }
+
+    private static void writeAll(Action mutation, CollectionLock[] locks, int from) throws JSONException {
+        if (from == locks.length) {
+            mutation.run();
+        } else {
+            locks[from].write(() -> writeAll(mutation, locks, from + 1));
+        }
+    }
+
+    private static void readAll(Runnable read, CollectionLock[] locks, int from) {
+        if (from == locks.length) {
+            read.run();
+        } else {
+            locks[from].read(() -> readAll(read, locks, from + 1));
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package classes;
+
+import classes.index.RoaringBitmap;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+// A filter in a Query. Built from Attribute (eq, in, lt, ...) and combined with and/or/not; matching() wraps any
+// other predicate, which the planner can only evaluate by testing entities.
+public abstract class Condition<T> {
+    Condition() {}
+
+    public static <T> Condition<T> matching(String description, Predicate<? super T> predicate) {
+        return new Matching<>(description, predicate);
+    }
+
+    public Condition<T> and(Condition<T> other) {
+        return new And<>(this, other);
+    }
+
+    public Condition<T> or(Condition<T> other) {
+        return new Or<>(this, other);
+    }
+
+    public Condition<T> not() {
+        return new Not<>(this);
+    }
+
+    abstract boolean test(Inventory inventory, T entity);
+
+    // Ids of exactly the entities that satisfy the condition, answered from the source's indexes,
+    // or null when the condition has to be tested entity by entity
+    RoaringBitmap lookup(QuerySource<T> source) {
+        return null;
+    }
+
+    // ========== IMPLEMENTATIONS ==========
+
+    static final class Equals<T, V extends Comparable<? super V>> extends Condition<T> {
+        private final Attribute<T, V> attribute;
+        private final V value;
+
+        Equals(Attribute<T, V> attribute, V value) {
+            this.attribute = attribute;
+            this.value = value;
+        }
+
+        @Override
+        boolean test(Inventory inventory, T entity) {
+            return Objects.equals(attribute.valueOf(inventory, entity), value);
+        }
+
+        @Override
+        RoaringBitmap lookup(QuerySource<T> source) {
+            return source.lookup(attribute, value);
+        }
+
+        @Override
+        public String toString() {
+            return attribute + " = " + quote(value);
+        }
+    }
+
+    static final class In<T, V extends Comparable<? super V>> extends Condition<T> {
+        private final Attribute<T, V> attribute;
+        private final Set<V> values;
+
+        In(Attribute<T, V> attribute, Set<V> values) {
+            this.attribute = attribute;
+            this.values = values;
+        }
+
+        @Override
+        boolean test(Inventory inventory, T entity) {
+            return values.contains(attribute.valueOf(inventory, entity));
+        }
+
+        @Override
+        RoaringBitmap lookup(QuerySource<T> source) {
+            RoaringBitmap ids = new RoaringBitmap();
+            for (V value : values) {
+                RoaringBitmap matches = source.lookup(attribute, value);
+                if (matches == null) return null;
+                ids = RoaringBitmap.or(ids, matches);
+            }
+            return ids;
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner joiner = new StringJoiner(", ", attribute + " in (", ")");
+            for (V value : values) joiner.add(quote(value));
+            return joiner.toString();
+        }
+    }
+
+    // Either bound may be null for an open range; entities with a null value never match
+    static final class Range<T, V extends Comparable<? super V>> extends Condition<T> {
+        private final Attribute<T, V> attribute;
+        private final V lower;
+        private final boolean lowerInclusive;
+        private final V upper;
+        private final boolean upperInclusive;
+
+        Range(Attribute<T, V> attribute, V lower, boolean lowerInclusive, V upper, boolean upperInclusive) {
+            this.attribute = attribute;
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+        }
+
+        @Override
+        boolean test(Inventory inventory, T entity) {
+            V value = attribute.valueOf(inventory, entity);
+            if (value == null) return false;
+            if (lower != null) {
+                int c = value.compareTo(lower);
+                if (c < 0 || (c == 0 && !lowerInclusive)) return false;
+            }
+            if (upper != null) {
+                int c = value.compareTo(upper);
+                if (c > 0 || (c == 0 && !upperInclusive)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        RoaringBitmap lookup(QuerySource<T> source) {
+            return source.lookupRange(attribute, lower, lowerInclusive, upper, upperInclusive);
+        }
+
+        @Override
+        public String toString() {
+            if (lower != null && upper != null) {
+                return attribute + " between " + quote(lower) + " and " + quote(upper);
+            }
+            if (lower != null) return attribute + (lowerInclusive ? " >= " : " > ") + quote(lower);
+            return attribute + (upperInclusive ? " <= " : " < ") + quote(upper);
+        }
+    }
+
+    static final class And<T> extends Condition<T> {
+        private final Condition<T> left;
+        private final Condition<T> right;
+
+        And(Condition<T> left, Condition<T> right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(Inventory inventory, T entity) {
+            return left.test(inventory, entity) && right.test(inventory, entity);
+        }
+
+        @Override
+        RoaringBitmap lookup(QuerySource<T> source) {
+            RoaringBitmap l = left.lookup(source);
+            RoaringBitmap r = l == null ? null : right.lookup(source);
+            return r == null ? null : RoaringBitmap.and(l, r);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " and " + right + ")";
+        }
+    }
+
+    static final class Or<T> extends Condition<T> {
+        private final Condition<T> left;
+        private final Condition<T> right;
+
+        Or(Condition<T> left, Condition<T> right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(Inventory inventory, T entity) {
+            return left.test(inventory, entity) || right.test(inventory, entity);
+        }
+
+        @Override
+        RoaringBitmap lookup(QuerySource<T> source) {
+            RoaringBitmap l = left.lookup(source);
+            RoaringBitmap r = l == null ? null : right.lookup(source);
+            return r == null ? null : RoaringBitmap.or(l, r);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " or " + right + ")";
+        }
+    }
+
+    // Not answerable on its own (an index has no "everything else"), but the planner subtracts its
+    // negated lookup from candidates found by the other conditions
+    static final class Not<T> extends Condition<T> {
+        final Condition<T> negated;
+
+        Not(Condition<T> negated) {
+            this.negated = negated;
+        }
+
+        @Override
+        boolean test(Inventory inventory, T entity) {
+            return !negated.test(inventory, entity);
+        }
+
+        @Override
+        public String toString() {
+            return "not " + negated;
+        }
+    }
+
+    static final class Matching<T> extends Condition<T> {
+        private final String description;
+        private final Predicate<? super T> predicate;
+
+        Matching(String description, Predicate<? super T> predicate) {
+            this.description = description;
+            this.predicate = predicate;
+        }
+
+        @Override
+        boolean test(Inventory inventory, T entity) {
+            return predicate.test(entity);
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private static String quote(Object value) {
+        return value instanceof String ? "\"" + value + "\"" : String.valueOf(value);
+    }
+}
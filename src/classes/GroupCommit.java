@@ -0,0 +1,37 @@
+package classes;
+
+import mapper.JSONException;
+
+// Group commit for one file: callers that ask for a save while another save of the same file is in flight wait
+// for it to finish, and then a single follow-up write covers all of them.
+class GroupCommit {
+    interface Write {
+        void write() throws JSONException;
+    }
+
+    private final Object writeLock = new Object();
+    private long requested; // tickets handed out
+    private long completed; // highest ticket known to be on disk
+
+    // Returns once a write that started after this call has completed
+    void save(Write write) throws JSONException {
+        long ticket;
+        synchronized (this) {
+            ticket = ++requested;
+        }
+
+        synchronized (writeLock) {
+            long covered;
+            synchronized (this) {
+                if (completed >= ticket) return; // a write that started after our request already did the work
+                covered = requested;
+            }
+
+            write.write();
+
+            synchronized (this) {
+                completed = Math.max(completed, covered);
+            }
+        }
+    }
+}
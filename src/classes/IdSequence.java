@@ -0,0 +1,66 @@
+package classes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hands out the ids of one kind of entity. Ids come from a block reserved ahead of time, so next() is a single
+// atomic increment; only the call that runs past the block reserves the next one, and a reservation is recorded
+// (as the high-water mark, the end of the reserved range) before any id from it is handed out. After a restart the
+// sequence resumes at that mark, so an id is never handed out twice, not even one whose entity was later deleted.
+// Gaps are normal: whatever was left of the last block is skipped. Safe to use from any thread.
+public final class IdSequence {
+    // Records a new high-water mark before the sequence hands out ids below it
+    interface Reservations {
+        void reserve(IdSequence sequence, int highWaterMark);
+    }
+
+    private final String name;
+    private final int blockSize;
+    private final Reservations reservations;
+    private final AtomicInteger next = new AtomicInteger(1);
+    private volatile int reservedUpTo = 1; // ids below this may be handed out without reserving
+
+    IdSequence(String name, int blockSize, Reservations reservations) {
+        this.name = name;
+        this.blockSize = blockSize;
+        this.reservations = reservations;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int next() {
+        int id = next.getAndIncrement();
+        if (id < 1) throw new IllegalStateException("No " + name + " ids left");
+        if (id >= reservedUpTo) reserveThrough(id);
+        return id;
+    }
+
+    // The id next() would hand out now
+    public int peek() {
+        return next.get();
+    }
+
+    // End of the reserved range: every id handed out so far is below it
+    int highWaterMark() {
+        return reservedUpTo;
+    }
+
+    // Makes every later id larger than this one, which is already in use
+    void advancePast(int id) {
+        if (id >= next.get()) next.accumulateAndGet(id + 1, Math::max);
+    }
+
+    // Resumes above a high-water mark recorded by an earlier run; its ids are never reserved again
+    void restore(int highWaterMark) {
+        advancePast(highWaterMark - 1);
+    }
+
+    // Only the thread that ran past the block waits here, the others keep taking ids below the mark
+    private synchronized void reserveThrough(int id) {
+        if (id < reservedUpTo) return;
+        int highWaterMark = (int) Math.min(Integer.MAX_VALUE, (long) id + blockSize);
+        reservations.reserve(this, highWaterMark);
+        reservedUpTo = highWaterMark;
+    }
+}
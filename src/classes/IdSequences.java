@@ -0,0 +1,91 @@
+package classes;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+
+// The inventory's id sequences, one per kind of entity, and the small file that keeps their high-water marks.
+//
+// Layout (big-endian, version 1):
+//   int magic "TPMI", int version, int sequenceCount, then per sequence: UTF name + int highWaterMark
+//
+// The file is rewritten (and synced) once per reserved block, never per id. Losing it is not fatal: at load the
+// sequences are also moved past the largest id in the data, so only ids of deleted entities could come back.
+class IdSequences {
+    static final int MAGIC = 0x54504D49; // "TPMI"
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 1024;
+
+    final IdSequence items = new IdSequence("items", BLOCK_SIZE, this::reserve);
+    final IdSequence products = new IdSequence("products", BLOCK_SIZE, this::reserve);
+    final IdSequence productionLines = new IdSequence("production lines", BLOCK_SIZE, this::reserve);
+    final IdSequence tasks = new IdSequence("tasks", BLOCK_SIZE, this::reserve);
+
+    private final File file;
+    private final Map<String, Integer> highWaterMarks = new HashMap<>(); // as last written
+
+    IdSequences(File file) {
+        this.file = file;
+    }
+
+    // Resumes every sequence above the marks in the file; a missing or unreadable file leaves them where they are
+    synchronized void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not an id file");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported id file version " + version);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int highWaterMark = in.readInt();
+                highWaterMarks.merge(name, highWaterMark, Math::max);
+                for (IdSequence sequence : all()) {
+                    if (sequence.getName().equals(name)) sequence.restore(highWaterMark);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to load id sequences, continuing from the loaded data: " + e.getMessage());
+        }
+    }
+
+    IdSequence[] all() {
+        return new IdSequence[]{items, products, productionLines, tasks};
+    }
+
+    // ========== PRIVATE HELPERS ==========
+
+    private synchronized void reserve(IdSequence sequence, int highWaterMark) {
+        highWaterMarks.merge(sequence.getName(), highWaterMark, Math::max);
+        try {
+            write();
+        } catch (IOException e) {
+            // ids stay unique within this run, and the next load still moves past every id that was saved
+            System.out.println("Failed to save id sequences: " + e.getMessage());
+        }
+    }
+
+    private void write() throws IOException {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(highWaterMarks.size());
+            for (Map.Entry<String, Integer> entry : highWaterMarks.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -1,125 +1,633 @@
 package classes;
 
+import classes.index.IntHashIndex;
+import classes.index.RoaringBitmap;
 import mapper.JSONException;
 import mapper.ObjectMapper;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
-
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+// Safe to share between threads: every method takes the lock of the collection it touches (see CollectionLock),
+// and the lists themselves are only handed out as copies. Entities are still the live objects; edit them through
+// updateX() or, for read-modify-write changes such as taking stock, through editItem(), editTask(),
+// editProductionLine() and takeStockFor().
 public class Inventory {
-    private final ObjectMapper mapper = new ObjectMapper();
+    // ALWAYS forces every journal record to disk, PERIODIC at most once per sync interval, NEVER leaves it to the OS
+    public enum JournalSync { ALWAYS, PERIODIC, NEVER }
+
+    private static final long DEFAULT_CHECKPOINT_BYTES = 8L << 20;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5000;
+
+    private final ObjectMapper mapper = new ObjectMapper().setReadMode(ObjectMapper.ReadMode.IN_MEMORY);
     private final String itemsFilePath;
     private final String productsFilePath;
     private final String productLineFilePath;
+    private final String snapshotFilePath;
+    private final String journalFilePath;
+    private final InventoryJournal journal;
+    private long checkpointBytes = DEFAULT_CHECKPOINT_BYTES;
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private InventoryFlusher flusher;
+
+    // ================ DIRTY TRACKING ================
+    // Set after a journaled mutation, cleared when the collection's JSON file is rewritten
+    private final AtomicBoolean itemsDirty = new AtomicBoolean();
+    private final AtomicBoolean productsDirty = new AtomicBoolean();
+    private final AtomicBoolean productionLinesDirty = new AtomicBoolean();
+    // Set when the JSON files moved on without the snapshot, which is then deleted until close() or saveAll()
+    private final AtomicBoolean snapshotStale = new AtomicBoolean();
+    private final Object checkpointLock = new Object();
+
+    // ================ GROUP COMMIT ================
+    // One per JSON file, so concurrent saves of the same file collapse into one write
+    private final GroupCommit itemsCommit = new GroupCommit();
+    private final GroupCommit productsCommit = new GroupCommit();
+    private final GroupCommit productionLinesCommit = new GroupCommit();
 
     // ================ LISTS ================
-    public List<Item> items = new ArrayList<>();
-    public List<Product> products = new ArrayList<>();
-    public List<ProductionLine> productionLines = new ArrayList<>();
+    private List<Item> items = new ArrayList<>();
+    private List<Product> products = new ArrayList<>();
+    private List<ProductionLine> productionLines = new ArrayList<>();
+
+    // ================ LOCKS ================
+    // One per list and its indexes; tasks belong to the production lines. A thread that needs several takes
+    // them in this order: items, products, production lines.
+    private final CollectionLock itemsLock = new CollectionLock();
+    private final CollectionLock productsLock = new CollectionLock();
+    private final CollectionLock productionLinesLock = new CollectionLock();
+
+    // ================ INDEXES ================
+    private final InventoryIndexes indexes = new InventoryIndexes();
+
+    // ================ QUERY SOURCES ================
+    // What the query planner may use for each entity: a scan of the lists plus the exact-value indexes
+    private final QuerySource<Item> itemSource = new QuerySource<Item>("items", Attributes.Items.ID, itemsLock,
+            id -> indexes.itemsById.get(id), action -> items.forEach(action), () -> indexes.itemIds)
+            .index(Attributes.Items.NAME, name -> idOf(indexes.itemsByName.get((String) name), item -> item.id))
+            .index(Attributes.Items.CATEGORY, category -> indexes.itemsByCategory.ids((String) category),
+                    indexes.itemsByCategory::keys)
+            .index(Attributes.Items.AVAILABILITY, availability ->
+                    indexes.itemColumns.withAvailability((String) availability))
+            .rangeIndex(Attributes.Items.STOCK, indexes.itemColumns::stockIn)
+            .rangeIndex(Attributes.Items.MINIMUM_STOCK, indexes.itemColumns::minimumStockIn)
+            .rangeIndex(Attributes.Items.PRICE, indexes.itemColumns::priceIn);
+
+    private final QuerySource<Product> productSource = new QuerySource<Product>("products", Attributes.Products.ID,
+            productsLock, id -> indexes.productsById.get(id), action -> products.forEach(action), () -> indexes.productIds)
+            .index(Attributes.Products.NAME,
+                    name -> idOf(indexes.productsByName.get((String) name), product -> product.id));
+
+    private final QuerySource<ProductionLine> productionLineSource = new QuerySource<ProductionLine>(
+            "production lines", Attributes.ProductionLines.ID, productionLinesLock,
+            id -> indexes.productionLinesById.get(id),
+            action -> productionLines.forEach(action), () -> indexes.productionLineIds)
+            .index(Attributes.ProductionLines.NAME,
+                    name -> idOf(indexes.productionLinesByName.get((String) name), line -> line.id))
+            .index(Attributes.ProductionLines.STATE, state -> indexes.productionLinesByState.ids((String) state),
+                    indexes.productionLinesByState::keys);
+
+    private final QuerySource<ProductionLine.Task> taskSource = new QuerySource<ProductionLine.Task>("tasks",
+            Attributes.Tasks.ID, productionLinesLock, id -> indexes.tasksById.get(id),
+            action -> productionLines.forEach(line -> line.tasks.forEach(action)), () -> indexes.taskIds)
+            .index(Attributes.Tasks.PRODUCTION_LINE_ID, lineId -> indexes.tasksByLine.get(lineId),
+                    indexes.tasksByLine::keys)
+            .index(Attributes.Tasks.PRODUCTION_LINE_NAME, name -> {
+                ProductionLine line = indexes.productionLinesByName.get((String) name);
+                return line == null ? new RoaringBitmap() : indexes.tasksByLine.get(line.id);
+            })
+            .index(Attributes.Tasks.PRODUCT_NAME, productName -> indexes.tasksByProduct.get(productName),
+                    indexes.tasksByProduct::keys)
+            .index(Attributes.Tasks.CUSTOMER, customer -> indexes.tasksByCustomer.get(customer),
+                    indexes.tasksByCustomer::keys)
+            .index(Attributes.Tasks.STATE, state -> indexes.tasksByState.get(state), indexes.tasksByState::keys)
+            .index(Attributes.Tasks.STARTING_DATE, day -> indexes.schedule.startingIn(day, true, day, true))
+            .index(Attributes.Tasks.FINISHING_DATE, day -> indexes.schedule.finishingIn(day, true, day, true))
+            .rangeIndex(Attributes.Tasks.STARTING_DATE, indexes.schedule::startingIn)
+            .rangeIndex(Attributes.Tasks.FINISHING_DATE, indexes.schedule::finishingIn);
+
+    // ================ ID SEQUENCES ================
+    // New entities get their ids from these; ids are never handed out twice, see IdSequence
+    private final IdSequences ids;
+
+    public int nextItemId() {
+        return ids.items.next();
+    }
 
-    // ================ MAX IDs ================
-    public int itemMaxId;
-    public int productMaxId;
-    public int productionLineMaxId;
-    public int taskMaxId;
+    public int nextProductId() {
+        return ids.products.next();
+    }
+
+    public int nextProductionLineId() {
+        return ids.productionLines.next();
+    }
+
+    public int nextTaskId() {
+        return ids.tasks.next();
+    }
 
     // ================ CONSTRUCTOR ================
     public Inventory(String itemsFilePath, String productsFilePath, String productLineFilePath) {
+        this(itemsFilePath, productsFilePath, productLineFilePath,
+                new File(new File(itemsFilePath).getAbsoluteFile().getParentFile(), "inventory.snapshot").getPath());
+    }
+
+    public Inventory(String itemsFilePath, String productsFilePath, String productLineFilePath, String snapshotFilePath) {
+        this(itemsFilePath, productsFilePath, productLineFilePath, snapshotFilePath,
+                new File(new File(snapshotFilePath).getAbsoluteFile().getParentFile(), "inventory.journal").getPath());
+    }
+
+    public Inventory(String itemsFilePath, String productsFilePath, String productLineFilePath, String snapshotFilePath,
+                     String journalFilePath) {
         this.itemsFilePath = itemsFilePath;
         this.productsFilePath = productsFilePath;
         this.productLineFilePath = productLineFilePath;
+        this.snapshotFilePath = snapshotFilePath;
+        this.journalFilePath = journalFilePath;
+        this.journal = new InventoryJournal(new File(journalFilePath));
+        this.ids = new IdSequences(new File(new File(journalFilePath).getAbsoluteFile().getParentFile(), "inventory.ids"));
+    }
+
+    // ================ CONFIGURATION ================
+    public Inventory setJournalSync(JournalSync sync, long intervalMillis) {
+        if (sync == null) throw new IllegalArgumentException("Journal sync cannot be null");
+        if (intervalMillis < 0) throw new IllegalArgumentException("Sync interval cannot be negative");
+        journal.setSync(sync, intervalMillis);
+        return this;
+    }
+
+    // A background flush is requested as soon as the journal grows past this size
+    public Inventory setCheckpointBytes(long checkpointBytes) {
+        if (checkpointBytes <= 0) throw new IllegalArgumentException("Checkpoint size must be positive");
+        this.checkpointBytes = checkpointBytes;
+        return this;
+    }
+
+    // Dirty JSON files are rewritten in the background at most once per interval
+    public synchronized Inventory setFlushInterval(long intervalMillis) {
+        if (intervalMillis <= 0) throw new IllegalArgumentException("Flush interval must be positive");
+        this.flushIntervalMillis = intervalMillis;
+        if (flusher != null) flusher.setInterval(intervalMillis);
+        return this;
     }
 
     // ================ LOAD/SAVE ALL ================
+    // Loads the last checkpoint (snapshot or JSON files) and replays the journal written since
     public void loadAll() throws JSONException {
-        loadItems();
-        loadProducts();
-        loadProductionLines();
+        synchronized (checkpointLock) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close journal: " + e.getMessage());
+            }
+
+            ids.load();
+            CollectionLock.writeAll(() -> {
+                // the three files are independent, so they are parsed concurrently
+                if (!loadSnapshot()) {
+                    runAll("load inventory", labeled(itemsFilePath, this::readItems),
+                            labeled(productsFilePath, this::readProducts),
+                            labeled(productLineFilePath, this::readProductionLines));
+                    snapshotStale.set(true);
+                }
+                replayJournal();
+                validateReferences();
+            }, itemsLock, productsLock, productionLinesLock);
+        }
+        startFlusher();
     }
 
+    // Rewrites all three JSON files and the snapshot, whether they are dirty or not
     public void saveAll() throws JSONException {
-        saveItems();
-        saveProducts();
-        saveProductionLines();
+        checkpoint(true);
+    }
+
+    // Durability barrier: when it returns, every mutation made before the call is in the JSON files
+    public void flush() throws JSONException {
+        checkpoint(false);
+    }
+
+    // Stops the background flusher, writes what is still dirty and catches the snapshot up; also runs from a shutdown
+    // hook
+    public void close() {
+        InventoryFlusher flusher;
+        synchronized (this) {
+            flusher = this.flusher;
+            this.flusher = null;
+        }
+        if (flusher != null) flusher.stop();
+
+        flushQuietly();
+        synchronized (checkpointLock) {
+            if (snapshotStale.get()) saveSnapshot();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Failed to close journal: " + e.getMessage());
+        }
+    }
+
+    // ------------ CHECKPOINT ------------
+    // Moves the journal aside, rewrites the dirty files, then drops the journal records they now contain. Files that
+    // are not dirty already hold everything the journal has for them. The snapshot covers the whole inventory, so
+    // the frequent background flushes leave it stale and only saveAll() and close() rewrite it.
+    private void checkpoint(boolean all) throws JSONException {
+        synchronized (checkpointLock) {
+            if (!all && !itemsDirty.get() && !productsDirty.get() && !productionLinesDirty.get()) return;
+
+            try {
+                journal.rotate();
+            } catch (IOException e) {
+                throw new JSONException("Failed to rotate journal: " + journalFilePath, e);
+            }
+
+            // cleared before writing, so a mutation that races with the write marks its collection again
+            List<Step> writes = new ArrayList<>();
+            if (itemsDirty.getAndSet(false) || all) writes.add(() -> save(itemsDirty, this::saveItems));
+            if (productsDirty.getAndSet(false) || all) writes.add(() -> save(productsDirty, this::saveProducts));
+            if (productionLinesDirty.getAndSet(false) || all) {
+                writes.add(() -> save(productionLinesDirty, this::saveProductionLines));
+            }
+            // dropped before the files move on: same-length rewrites within the timestamp granularity would
+            // otherwise leave its source stamps matching
+            if (!all && !snapshotStale.getAndSet(true)) new File(snapshotFilePath).delete();
+            runAll("save inventory", writes.toArray(new Step[0]));
+            if (all) saveSnapshot();
+
+            try {
+                journal.deleteRotated();
+            } catch (IOException e) {
+                // the old records are replayed once more at the next start, which is harmless
+                System.out.println("Failed to delete rotated journal: " + e.getMessage());
+            }
+        }
+    }
+
+    // A failed write leaves its records in the rotated journal; they are folded into the next checkpoint
+    private static void save(AtomicBoolean dirty, Step save) throws JSONException {
+        try {
+            save.run();
+        } catch (JSONException e) {
+            dirty.set(true);
+            throw e;
+        }
+    }
+
+    void flushQuietly() {
+        try {
+            flush();
+        } catch (JSONException e) {
+            System.out.println("Background flush failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized void startFlusher() {
+        if (flusher == null) {
+            flusher = new InventoryFlusher(this);
+            flusher.start(flushIntervalMillis);
+        }
+    }
+
+    // ------------ PARALLEL STEPS ------------
+    private interface Step {
+        void run() throws JSONException;
+    }
+
+    // Prefixes the step's errors with the file it was working on
+    private static Step labeled(String path, Step step) {
+        return () -> {
+            try {
+                step.run();
+            } catch (JSONException e) {
+                throw new JSONException(path + ": " + e.getMessage(), e);
+            }
+        };
+    }
+
+    // Runs the steps concurrently and waits for all of them; every failure is reported, not just the first
+    private static void runAll(String action, Step... steps) throws JSONException {
+        if (steps.length == 1) {
+            steps[0].run();
+            return;
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(steps.length);
+        for (Step step : steps) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    step.run();
+                } catch (JSONException e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+
+        List<Throwable> errors = new ArrayList<>();
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                errors.add(e.getCause());
+            }
+        }
+
+        if (errors.size() == 1 && errors.get(0) instanceof JSONException single) throw single;
+        if (!errors.isEmpty()) {
+            StringBuilder message = new StringBuilder("Failed to " + action + " (" + errors.size() + " errors)");
+            for (Throwable error : errors) message.append("; ").append(error.getMessage());
+            JSONException exception = new JSONException(message.toString(), errors.get(0));
+            for (int i = 1; i < errors.size(); i++) exception.addSuppressed(errors.get(i));
+            throw exception;
+        }
+    }
+
+    // ------------ REFERENCES ------------
+    // Products name their required items and tasks name their product; report names that resolve to nothing
+    private void validateReferences() {
+        int unknownItems = 0;
+        String example = null;
+        for (Product product : products) {
+            for (Product.RequiredItem requiredItem : product.requiredItems) {
+                if (findItemByName(requiredItem.item) == null) {
+                    unknownItems++;
+                    if (example == null) example = product.name + " -> " + requiredItem.item;
+                }
+            }
+        }
+        if (unknownItems > 0) {
+            System.out.println("Warning: " + unknownItems + " required items refer to unknown items (e.g. " + example + ")");
+        }
+
+        int unknownProducts = 0;
+        example = null;
+        for (ProductionLine line : productionLines) {
+            for (ProductionLine.Task task : line.tasks) {
+                if (findProductByName(task.productName) == null) {
+                    unknownProducts++;
+                    if (example == null) example = "task " + task.id + " -> " + task.productName;
+                }
+            }
+        }
+        if (unknownProducts > 0) {
+            System.out.println("Warning: " + unknownProducts + " tasks refer to unknown products (e.g. " + example + ")");
+        }
+    }
+
+    // ------------ IDS ------------
+    // Loaded data may predate the sequences (or their file may be lost), so they always move past its ids
+    private void advanceIds() {
+        ids.items.advancePast(findItemsMaxId());
+        ids.products.advancePast(findProductsMaxId());
+        ids.productionLines.advancePast(findProductionLinesMaxId());
+        ids.tasks.advancePast(findTaskMaxId());
+    }
+
+    // The id an added entity gets: the next one from the sequence when it has none (0 or less), otherwise its
+    // own, which must not be taken yet; -1 when it is
+    private static int claimId(IdSequence sequence, int id, RoaringBitmap taken, String entity) {
+        if (id <= 0) return sequence.next();
+        if (taken.contains(id)) {
+            System.out.println(entity + " with ID " + id + " already exists.");
+            return -1;
+        }
+        sequence.advancePast(id);
+        return id;
+    }
+
+    // ------------ JOURNAL ------------
+    private void replayJournal() throws JSONException {
+        try {
+            int count = journal.replay(items, products, productionLines);
+            if (count > 0) {
+                indexes.rebuild(items, products, productionLines);
+                advanceIds();
+                System.out.println("Replayed " + count + " journal records from: " + journalFilePath);
+            }
+            journal.open();
+        } catch (IOException e) {
+            throw new JSONException("Failed to replay journal: " + journalFilePath, e);
+        }
+    }
+
+    private interface JournalWrite {
+        void write(InventoryJournal journal) throws IOException;
+    }
+
+    // Mutations cost one small append instead of a full file rewrite; the files catch up at the next flush.
+    // Marked dirty before the append: a checkpoint that still finds the collection clean has already rotated, so the
+    // record goes to the new journal; one that finds it dirty rewrites the file, which waits for the write lock.
+    private void journal(AtomicBoolean dirty, JournalWrite write) throws JSONException {
+        dirty.set(true);
+        try {
+            write.write(journal);
+        } catch (IOException e) {
+            throw new JSONException("Failed to write journal: " + journalFilePath, e);
+        }
+    }
+
+    // Runs a mutation under the collection's write lock. A checkpoint the journal has grown into runs after the
+    // lock is released, since writing the files needs the read locks of every collection.
+    private void write(CollectionLock lock, CollectionLock.Action mutation) throws JSONException {
+        lock.write(mutation);
+        if (journal.size() >= checkpointBytes) {
+            InventoryFlusher flusher;
+            synchronized (this) {
+                flusher = this.flusher;
+            }
+            if (flusher != null) {
+                flusher.request();
+            } else {
+                flush();
+            }
+        }
+    }
+
+    // ------------ SNAPSHOT ------------
+    // The binary snapshot is only trusted while the JSON files are exactly the ones it was written from
+    private boolean loadSnapshot() {
+        File file = new File(snapshotFilePath);
+        if (!file.exists()) return false;
+
+        try {
+            InventorySnapshot.Contents contents = InventorySnapshot.read(file, sourceStamps());
+            if (contents == null) {
+                System.out.println("Snapshot is older than the JSON files, loading JSON instead: " + snapshotFilePath);
+                return false;
+            }
+
+            items = contents.items;
+            products = contents.products;
+            productionLines = contents.productionLines;
+            indexes.rebuild(items, products, productionLines);
+            advanceIds();
+            System.out.println("Loaded " + items.size() + " items, " + products.size() + " products and " +
+                    productionLines.size() + " production lines from snapshot: " + snapshotFilePath);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Failed to load snapshot, loading JSON instead: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public void saveSnapshot() {
+        snapshotStale.set(false);
+        CollectionLock.readAll(() -> {
+            try {
+                InventorySnapshot.write(new File(snapshotFilePath), sourceStamps(), items, products, productionLines);
+                System.out.println("Snapshot saved to: " + snapshotFilePath);
+            } catch (IOException e) {
+                // a missing snapshot only costs startup time, JSON stays the source of truth
+                System.out.println("Failed to save snapshot: " + e.getMessage());
+                new File(snapshotFilePath).delete();
+            }
+        }, itemsLock, productsLock, productionLinesLock);
+    }
+
+    private long[] sourceStamps() {
+        String[] paths = {itemsFilePath, productsFilePath, productLineFilePath};
+        long[] stamps = new long[paths.length * 2];
+        for (int i = 0; i < paths.length; i++) {
+            File file = new File(paths[i]);
+            stamps[i * 2] = file.exists() ? file.lastModified() : -1;
+            stamps[i * 2 + 1] = file.exists() ? file.length() : -1;
+        }
+        return stamps;
     }
 
     // ==================== ITEMS MANAGEMENT ===========================
 
     // ------------ LOAD/SAVE ------------
     public void loadItems() throws JSONException {
+        itemsLock.write(this::readItems);
+    }
+
+    private void readItems() throws JSONException {
         File file = new File(itemsFilePath);
         if (file.exists()) {
             items = mapper.readValueAsList(file, Item.class);
             System.out.println("Loaded " + items.size() + " items from: " + itemsFilePath);
-            itemMaxId = findItemsMaxId();
+            ids.items.advancePast(findItemsMaxId());
         } else {
             System.out.println("Items file not found: " + itemsFilePath + ". Starting with empty inventory.");
             items = new ArrayList<>();
         }
+        indexes.rebuildItems(items);
     }
 
     public void saveItems() throws JSONException {
-        mapper.writeValue(new File(itemsFilePath), items);
-        System.out.println("Items saved to: " + itemsFilePath);
+        itemsCommit.save(() -> itemsLock.readChecked(() -> {
+            mapper.writeValue(new File(itemsFilePath), items);
+            System.out.println("Items saved to: " + itemsFilePath);
+        }));
     }
 
     // ------------ CRUD OPERATIONS ------------
     public void addItem(Item item) throws JSONException {
-        items.add(item);
-        itemMaxId = findItemsMaxId();
-        saveItems();
-        System.out.println("Item added: " + item.name);
-        printItems();
+        write(itemsLock, () -> {
+            if (indexes.itemsByName.isTaken(item.name, item)) {
+                System.out.println("Item name already exists: " + item.name);
+                return;
+            }
+            int id = claimId(ids.items, item.id, indexes.itemIds, "Item");
+            if (id < 0) return;
+            item.id = id;
+            items.add(item);
+            indexes.addItem(item);
+            journal(itemsDirty, j -> j.putItem(item));
+            System.out.println("Item added: " + item.name);
+            printItems();
+        });
     }
 
     public void removeItem(Item item) throws JSONException {
-        if (items.remove(item)) {
-            saveItems();
-            System.out.println("Item removed: " + item.name);
-            printItems();
-        }
+        write(itemsLock, () -> {
+            if (items.remove(item)) {
+                indexes.removeItem(item);
+                journal(itemsDirty, j -> j.deleteItem(item.id));
+                System.out.println("Item removed: " + item.name);
+                printItems();
+            }
+        });
     }
 
     public void updateItem(Item updatedItem) throws JSONException {
-        for (int i = 0; i < items.size(); i++) {
-            if (items.get(i).id == updatedItem.id) {
-                items.set(i, updatedItem);
-                saveItems();
-                System.out.println("Item updated: " + updatedItem.name);
+        write(itemsLock, () -> replaceItem(updatedItem));
+    }
+
+    // Applies the edit to the item under the items lock, so concurrent edits are never lost. The edit returns
+    // whether it changed anything; only then is the item re-indexed and saved. Returns the edit's answer.
+    public boolean editItem(int id, Predicate<Item> edit) throws JSONException {
+        boolean[] changed = {false};
+        write(itemsLock, () -> {
+            Item item = indexes.itemsById.get(id);
+            if (item == null) {
+                System.out.println("Item with ID " + id + " not found for update.");
                 return;
             }
+            changed[0] = edit.test(item);
+            if (changed[0]) replaceItem(item);
+        });
+        return changed[0];
+    }
+
+    private void replaceItem(Item updatedItem) throws JSONException {
+        Item existing = indexes.itemsById.get(updatedItem.id);
+        if (existing == null) {
+            System.out.println("Item with ID " + updatedItem.id + " not found for update.");
+            return;
         }
-        System.out.println("Item with ID " + updatedItem.id + " not found for update.");
+        if (indexes.itemsByName.isTaken(updatedItem.name, existing)) {
+            System.out.println("Item name already exists: " + updatedItem.name + ", keeping the old name.");
+            updatedItem.name = indexes.itemsByName.indexedName(existing.id);
+        }
+        // callers usually edit the indexed instance in place, only a new instance has to be swapped into the list
+        if (existing != updatedItem) items.set(items.indexOf(existing), updatedItem);
+        indexes.removeItem(existing);
+        indexes.addItem(updatedItem);
+        journal(itemsDirty, j -> j.putItem(updatedItem));
+        System.out.println("Item updated: " + updatedItem.name);
     }
 
     // ------------ SEARCH FUNCTIONS ------------
     public Item findItemById(int id) {
-        for (Item item : items) {
-            if (item.id == id) {
-                return item;
-            }
-        }
-        return null;
+        return itemsLock.read(() -> indexes.itemsById.get(id));
     }
 
     public Item findItemByName(String name) {
-        for (Item item : items) {
-            if (item.name != null && item.name.equalsIgnoreCase(name)) {
-                return item;
-            }
-        }
-        return null;
+        return itemsLock.read(() -> indexes.itemsByName.get(name));
     }
 
+    // Copy of the item list, in list order
+    public List<Item> getItems() {
+        return itemsLock.read(() -> List.copyOf(items));
+    }
+
+    // Results are ordered by id
     public List<Item> findItemsByCategory(String category) {
-        List<Item> result = new ArrayList<>();
-        for (Item item : items) {
-            if (item.category != null && item.category.equalsIgnoreCase(category)) {
-                result.add(item);
-            }
-        }
-        return result;
+        return items().where(Attributes.Items.CATEGORY.eq(category)).list();
+    }
+
+    // Items that are out of stock or at/under their minimum, ordered by id; a scan of the stock columns
+    public List<Item> findItemsBelowMinimumStock() {
+        return itemsLock.read(() -> {
+            List<Item> result = new ArrayList<>();
+            indexes.itemColumns.belowMinimum().forEach(id -> result.add(indexes.itemsById.get(id)));
+            return result;
+        });
+    }
+
+    // Stock value (price * stock) of one category, ignoring case, or of all items when category is null
+    public double getStockValue(String category) {
+        return itemsLock.read(() -> indexes.itemColumns.stockValue(category));
     }
 
     // ------------ VALIDATION & HELPER FUNCTIONS ------------
@@ -127,6 +635,10 @@ public class Inventory {
         return findItemById(id) != null;
     }
 
+    public boolean itemNameExists(String name) {
+        return findItemByName(name) != null;
+    }
+
     private int findItemsMaxId() {
         return items.stream()
                 .mapToInt(Item::getId)
@@ -136,79 +648,103 @@ public class Inventory {
 
     // ------------ DISPLAY FUNCTIONS ------------
     public void printItems() {
-        System.out.println("\n=== ITEMS INVENTORY (" + items.size() + " items) ===");
-        for (Item item : items) {
-            System.out.printf("ID: %d, Name: %s, Category: %s, Price: $%.2f, Stock: %d, Min Stock: %d%n",
-                    item.id, item.name, item.category, item.price, item.stock, item.minimumStock);
-        }
-        System.out.println("===================================\n");
+        itemsLock.read(() -> {
+            System.out.println("\n=== ITEMS INVENTORY (" + items.size() + " items) ===");
+            for (Item item : items) {
+                System.out.printf("ID: %d, Name: %s, Category: %s, Price: $%.2f, Stock: %d, Min Stock: %d%n",
+                        item.id, item.name, item.category, item.price, item.stock, item.minimumStock);
+            }
+            System.out.println("===================================\n");
+        });
     }
 
     // ==================== PRODUCTS MANAGEMENT ========================
 
     // ------------ LOAD/SAVE ------------
     public void loadProducts() throws JSONException {
+        productsLock.write(this::readProducts);
+    }
+
+    private void readProducts() throws JSONException {
         File file = new File(productsFilePath);
         if (file.exists()) {
             products = mapper.readValueAsList(file, Product.class);
             System.out.println("Loaded " + products.size() + " products from: " + productsFilePath);
-            productMaxId = findProductsMaxId();
+            ids.products.advancePast(findProductsMaxId());
         } else {
             System.out.println("Products file not found: " + productsFilePath + ". Starting with empty inventory.");
             products = new ArrayList<>();
         }
+        indexes.rebuildProducts(products);
     }
 
     public void saveProducts() throws JSONException {
-        mapper.writeValue(new File(productsFilePath), products);
-        System.out.println("Products saved to: " + productsFilePath);
+        productsCommit.save(() -> productsLock.readChecked(() -> {
+            mapper.writeValue(new File(productsFilePath), products);
+            System.out.println("Products saved to: " + productsFilePath);
+        }));
     }
 
     // ------------ CRUD OPERATIONS ------------
     public void addProduct(Product product) throws JSONException {
-        products.add(product);
-        saveProducts();
-        System.out.println("Product added: " + product.name);
-        printProducts();
+        write(productsLock, () -> {
+            if (indexes.productsByName.isTaken(product.name, product)) {
+                System.out.println("Product name already exists: " + product.name);
+                return;
+            }
+            int id = claimId(ids.products, product.id, indexes.productIds, "Product");
+            if (id < 0) return;
+            product.id = id;
+            products.add(product);
+            indexes.addProduct(product);
+            journal(productsDirty, j -> j.putProduct(product));
+            System.out.println("Product added: " + product.name);
+            printProducts();
+        });
     }
 
     public void removeProduct(Product product) throws JSONException {
-        if (products.remove(product)) {
-            saveProducts();
-            System.out.println("Product removed: " + product.name);
-            printProducts();
-        }
+        write(productsLock, () -> {
+            if (products.remove(product)) {
+                indexes.removeProduct(product);
+                journal(productsDirty, j -> j.deleteProduct(product.id));
+                System.out.println("Product removed: " + product.name);
+                printProducts();
+            }
+        });
     }
 
     public void updateProduct(Product updatedProduct) throws JSONException {
-        for (int i = 0; i < products.size(); i++) {
-            if (products.get(i).id == updatedProduct.id) {
-                products.set(i, updatedProduct);
-                saveProducts();
-                System.out.println("Product updated: " + updatedProduct.name);
+        write(productsLock, () -> {
+            Product existing = indexes.productsById.get(updatedProduct.id);
+            if (existing == null) {
+                System.out.println("Product with ID " + updatedProduct.id + " not found for update.");
                 return;
             }
-        }
-        System.out.println("Product with ID " + updatedProduct.id + " not found for update.");
+            if (indexes.productsByName.isTaken(updatedProduct.name, existing)) {
+                System.out.println("Product name already exists: " + updatedProduct.name + ", keeping the old name.");
+                updatedProduct.name = indexes.productsByName.indexedName(existing.id);
+            }
+            if (existing != updatedProduct) products.set(products.indexOf(existing), updatedProduct);
+            indexes.removeProduct(existing);
+            indexes.addProduct(updatedProduct);
+            journal(productsDirty, j -> j.putProduct(updatedProduct));
+            System.out.println("Product updated: " + updatedProduct.name);
+        });
     }
 
     // ------------ SEARCH FUNCTIONS ------------
     public Product findProductById(int id) {
-        for (Product product : products) {
-            if (product.id == id) {
-                return product;
-            }
-        }
-        return null;
+        return productsLock.read(() -> indexes.productsById.get(id));
     }
 
     public Product findProductByName(String name) {
-        for (Product product : products) {
-            if (product.name != null && product.name.equalsIgnoreCase(name)) {
-                return product;
-            }
-        }
-        return null;
+        return productsLock.read(() -> indexes.productsByName.get(name));
+    }
+
+    // Copy of the product list, in list order
+    public List<Product> getProducts() {
+        return productsLock.read(() -> List.copyOf(products));
     }
 
     // ------------ VALIDATION & HELPER FUNCTIONS ------------
@@ -216,6 +752,10 @@ public class Inventory {
         return findProductById(id) != null;
     }
 
+    public boolean productNameExists(String name) {
+        return findProductByName(name) != null;
+    }
+
     private int findProductsMaxId() {
         return products.stream()
                 .mapToInt(Product::getId)
@@ -225,159 +765,232 @@ public class Inventory {
 
     // ------------ PRODUCTION CHECKS ------------
     public boolean canProduce(Product product, int quantity) {
-        for (Product.RequiredItem requiredItem : findProductByName(product.name).requiredItems) {
-            if ((requiredItem.quantity * quantity) > findItemByName(requiredItem.item).stock) {
-                System.out.println("not enough " + requiredItem.item);
-                return false;
-            }
-        }
-        return true;
+        return canProduce(product.name, quantity);
     }
 
     public boolean canProduce(String productName, int quantity) {
-        for (Product.RequiredItem requiredItem : findProductByName(productName).requiredItems) {
-            System.out.println(requiredItem.item + ": " + requiredItem.quantity);
-            if ((requiredItem.quantity * quantity) > findItemByName(requiredItem.item).stock) {
-                System.out.println("not enough " + requiredItem.item);
-                return false;
+        List<Product.RequiredItem> requiredItems = requiredItemsOf(productName);
+        if (requiredItems == null) {
+            System.out.println("Product not found: " + productName);
+            return false;
+        }
+        return itemsLock.read(() -> {
+            for (Product.RequiredItem requiredItem : requiredItems) {
+                System.out.println(requiredItem.item + ": " + requiredItem.quantity);
+                Item item = indexes.itemsByName.get(requiredItem.item);
+                if (item == null || (requiredItem.quantity * quantity) > item.stock) {
+                    System.out.println("not enough " + requiredItem.item);
+                    return false;
+                }
             }
+            return true;
+        });
+    }
+
+    // Takes the items a finished task used out of stock, all under one items lock. Required items that no longer
+    // exist are skipped. Returns false if the product itself is gone.
+    public boolean takeStockFor(String productName, int quantity) throws JSONException {
+        List<Product.RequiredItem> requiredItems = requiredItemsOf(productName);
+        if (requiredItems == null) {
+            System.out.println("Product not found: " + productName);
+            return false;
         }
+        write(itemsLock, () -> {
+            for (Product.RequiredItem requiredItem : requiredItems) {
+                Item item = indexes.itemsByName.get(requiredItem.item);
+                if (item == null) {
+                    System.out.println("Item not found: " + requiredItem.item);
+                    continue;
+                }
+                item.stock -= requiredItem.quantity * quantity;
+                replaceItem(item);
+            }
+        });
         return true;
     }
 
+    // Copied under the products lock, which must not be held while the items are looked up; null if there is no
+    // such product
+    private List<Product.RequiredItem> requiredItemsOf(String productName) {
+        return productsLock.read(() -> {
+            Product product = indexes.productsByName.get(productName);
+            return product == null ? null : new ArrayList<>(product.requiredItems);
+        });
+    }
+
     // ------------ DISPLAY FUNCTIONS ------------
     public void printProducts() {
-        System.out.println("\n=== PRODUCTS INVENTORY (" + products.size() + " products) ===");
-        for (Product product : products) {
-            System.out.printf("ID: %d, Name: %s, Required Items: %d%n",
-                    product.id, product.name, product.requiredItems.size());
-            for (Product.RequiredItem requiredItem : product.requiredItems) {
-                System.out.printf("  - %s (Quantity: %d)%n", requiredItem.item, requiredItem.quantity);
+        productsLock.read(() -> {
+            System.out.println("\n=== PRODUCTS INVENTORY (" + products.size() + " products) ===");
+            for (Product product : products) {
+                System.out.printf("ID: %d, Name: %s, Required Items: %d%n",
+                        product.id, product.name, product.requiredItems.size());
+                for (Product.RequiredItem requiredItem : product.requiredItems) {
+                    System.out.printf("  - %s (Quantity: %d)%n", requiredItem.item, requiredItem.quantity);
+                }
             }
-        }
-        System.out.println("=======================================\n");
+            System.out.println("=======================================\n");
+        });
     }
 
     // ================= PRODUCTION LINES MANAGEMENT ===================
 
     // ------------ LOAD/SAVE ------------
     public void loadProductionLines() throws JSONException {
+        productionLinesLock.write(this::readProductionLines);
+    }
+
+    private void readProductionLines() throws JSONException {
         File file = new File(productLineFilePath);
         if (file.exists()) {
-            productionLines = mapper.readValueAsList(file, ProductionLine.class);
+            productionLines = mapper.readValueAsList(file, ProductionLine.class, ForkJoinPool.commonPool());
             System.out.println("Loaded " + productionLines.size() + " production lines from: " + productLineFilePath);
-            productionLineMaxId = findProductionLinesMaxId();
-            taskMaxId = findTaskMaxId();
+            ids.productionLines.advancePast(findProductionLinesMaxId());
+            ids.tasks.advancePast(findTaskMaxId());
         } else {
             System.out.println("Production lines file not found: " + productLineFilePath + ". Starting with empty inventory.");
             productionLines = new ArrayList<>();
         }
+        indexes.rebuildProductionLines(productionLines);
     }
 
     public void saveProductionLines() throws JSONException {
-        mapper.writeValue(new File(productLineFilePath), productionLines);
-        System.out.println("Production lines saved to: " + productLineFilePath);
+        productionLinesCommit.save(() -> productionLinesLock.readChecked(() -> {
+            mapper.writeValue(new File(productLineFilePath), productionLines);
+            System.out.println("Production lines saved to: " + productLineFilePath);
+        }));
     }
 
     // ------------ CRUD OPERATIONS ------------
     public void addProductionLine(ProductionLine productionLine) throws JSONException {
-        productionLines.add(productionLine);
-        saveProductionLines();
-        System.out.println("Production line added: " + productionLine.name);
-        printProductionLines();
+        write(productionLinesLock, () -> {
+            if (indexes.productionLinesByName.isTaken(productionLine.name, productionLine)) {
+                System.out.println("Production line name already exists: " + productionLine.name);
+                return;
+            }
+            int id = claimId(ids.productionLines, productionLine.id, indexes.productionLineIds, "Production line");
+            if (id < 0 || !claimTaskIds(productionLine)) return;
+            productionLine.id = id;
+            productionLines.add(productionLine);
+            indexes.addProductionLine(productionLine);
+            journal(productionLinesDirty, j -> j.putProductionLine(productionLine));
+            System.out.println("Production line added: " + productionLine.name);
+            printProductionLines();
+        });
     }
 
     public void removeProductionLine(ProductionLine productionLine) throws JSONException {
-        if (productionLines.remove(productionLine)) {
-            saveProductionLines();
-            System.out.println("Production line removed: " + productionLine.name);
-            printProductionLines();
-        }
+        write(productionLinesLock, () -> {
+            if (productionLines.remove(productionLine)) {
+                indexes.removeProductionLine(productionLine);
+                journal(productionLinesDirty, j -> j.deleteProductionLine(productionLine.id));
+                System.out.println("Production line removed: " + productionLine.name);
+                printProductionLines();
+            }
+        });
     }
 
     public void removeTask(ProductionLine.Task task) throws JSONException {
-        for (ProductionLine pl : productionLines) {
-            if (pl.tasks.remove(task)) {
-                saveProductionLines();
+        write(productionLinesLock, () -> {
+            ProductionLine pl = indexes.productionLinesByTaskId.get(task.id);
+            if (pl != null && pl.tasks.remove(task)) {
+                indexes.removeTask(task);
+                journal(productionLinesDirty, j -> j.deleteTask(pl.id, task.id));
                 System.out.println("Production line removed: " + task.productName);
                 printProductionLines();
             }
-        }
+        });
     }
 
     public void updateProductionLine(ProductionLine updatedLine) throws JSONException {
-        for (int i = 0; i < productionLines.size(); i++) {
-            if (productionLines.get(i).id == updatedLine.id) {
-                productionLines.set(i, updatedLine);
-                saveProductionLines();
-                System.out.println("Production line updated: " + updatedLine.name);
+        write(productionLinesLock, () -> replaceProductionLine(updatedLine));
+    }
+
+    // Applies the edit to the line under the production lines lock, like editTask(). Returns the edit's answer.
+    public boolean editProductionLine(int id, Predicate<ProductionLine> edit) throws JSONException {
+        boolean[] changed = {false};
+        write(productionLinesLock, () -> {
+            ProductionLine line = indexes.productionLinesById.get(id);
+            if (line == null) {
+                System.out.println("Production line with ID " + id + " not found for update.");
                 return;
             }
+            changed[0] = edit.test(line);
+            if (changed[0]) replaceProductionLine(line);
+        });
+        return changed[0];
+    }
+
+    private void replaceProductionLine(ProductionLine updatedLine) throws JSONException {
+        ProductionLine existing = indexes.productionLinesById.get(updatedLine.id);
+        if (existing == null) {
+            System.out.println("Production line with ID " + updatedLine.id + " not found for update.");
+            return;
+        }
+        if (indexes.productionLinesByName.isTaken(updatedLine.name, existing)) {
+            System.out.println("Production line name already exists: " + updatedLine.name + ", keeping the old name.");
+            updatedLine.name = indexes.productionLinesByName.indexedName(existing.id);
+        }
+        if (existing != updatedLine) productionLines.set(productionLines.indexOf(existing), updatedLine);
+        // the task list may have been replaced or edited too
+        indexes.removeProductionLine(existing);
+        for (ProductionLine.Task task : updatedLine.tasks) {
+            task.id = task.id > 0 ? task.id : ids.tasks.next(); // tasks added to the list in place
+            ids.tasks.advancePast(task.id);
         }
-        System.out.println("Production line with ID " + updatedLine.id + " not found for update.");
+        indexes.addProductionLine(updatedLine);
+        journal(productionLinesDirty, j -> j.putProductionLine(updatedLine));
+        System.out.println("Production line updated: " + updatedLine.name);
     }
 
     // ------------ SEARCH FUNCTIONS ------------
     public ProductionLine findProductionLineById(int id) {
-        for (ProductionLine line : productionLines) {
-            if (line.id == id) {
-                return line;
-            }
-        }
-        return null;
+        return productionLinesLock.read(() -> indexes.productionLinesById.get(id));
     }
 
     public ProductionLine findProductionLineByName(String name) {
-        for (ProductionLine line : productionLines) {
-            if (line.name != null && line.name.equalsIgnoreCase(name)) {
-                return line;
-            }
-        }
-        return null;
+        return productionLinesLock.read(() -> indexes.productionLinesByName.get(name));
+    }
+
+    // Copy of the production line list, in list order
+    public List<ProductionLine> getProductionLines() {
+        return productionLinesLock.read(() -> List.copyOf(productionLines));
     }
 
     public ProductionLine.Task findTaskByName(String name) {
-        for (ProductionLine pl : productionLines) {
-            for (ProductionLine.Task task : pl.tasks) {
-                if (task.productName != null && task.productName.equalsIgnoreCase(name)) {
-                    return task;
-                }
-            }
-        }
-        return null;
+        return tasks().where(Attributes.Tasks.PRODUCT_NAME.eq(name)).first();
     }
 
     public ProductionLine.Task findTaskById(int id) {
-        for (ProductionLine pl : productionLines) {
-            for (ProductionLine.Task task : pl.tasks) {
-                if (task.id == id) {
-                    return task;
-                }
-            }
-        }
-        return null;
+        return productionLinesLock.read(() -> indexes.tasksById.get(id));
+    }
+
+    public ProductionLine findProductionLineByTaskId(int taskId) {
+        return productionLinesLock.read(() -> indexes.productionLinesByTaskId.get(taskId));
     }
 
     public List<ProductionLine> findProductionLinesByState(String state) {
-        List<ProductionLine> result = new ArrayList<>();
-        for (ProductionLine line : productionLines) {
-            if (line.state != null && line.state.equalsIgnoreCase(state)) {
-                result.add(line);
-            }
-        }
-        return result;
+        return productionLines().where(Attributes.ProductionLines.STATE.eq(state)).list();
     }
 
     public List<ProductionLine> findProductionLinesWithTaskState(String taskState) {
-        List<ProductionLine> result = new ArrayList<>();
-        for (ProductionLine line : productionLines) {
-            for (ProductionLine.Task task : line.tasks) {
-                if (task.state != null && task.state.equalsIgnoreCase(taskState)) {
-                    result.add(line);
-                    break;
-                }
-            }
-        }
+        return productionLinesLock.read(() -> linesOf(indexes.tasksByState.get(InventoryIndexes.key(taskState))));
+    }
+
+    public List<ProductionLine> findProductionLinesWithProduct(String productName) {
+        return productionLinesLock.read(() -> linesOf(indexes.tasksByProduct.get(InventoryIndexes.normalize(productName))));
+    }
+
+    // Distinct owning lines of the tasks, ordered by id
+    private List<ProductionLine> linesOf(RoaringBitmap taskIds) {
+        IntHashIndex<ProductionLine> lines = new IntHashIndex<>();
+        taskIds.forEach(taskId -> {
+            ProductionLine line = indexes.productionLinesByTaskId.get(taskId);
+            if (line != null) lines.put(line.id, line);
+        });
+        List<ProductionLine> result = new ArrayList<>(lines.size());
+        lines.forEachValue(result::add);
+        result.sort(Comparator.comparingInt(line -> line.id));
         return result;
     }
 
@@ -386,6 +999,10 @@ public class Inventory {
         return findProductionLineById(id) != null;
     }
 
+    public boolean productionLineNameExists(String name) {
+        return findProductionLineByName(name) != null;
+    }
+
     private int findProductionLinesMaxId() {
         return productionLines.stream()
                 .mapToInt(line -> line.id)
@@ -396,198 +1013,341 @@ public class Inventory {
     private int findTaskMaxId() {
         int maxId = 0;
         for (ProductionLine pl : productionLines) {
-            maxId = pl.tasks.stream()
-                    .mapToInt(task -> task.id)
-                    .max()
-                    .orElse(0);
+            for (ProductionLine.Task task : pl.tasks) {
+                maxId = Math.max(maxId, task.id);
+            }
         }
-
         return maxId;
     }
 
-    // ------------ TASK MANAGEMENT ------------
-    public void addTaskToProductionLine(int productionLineId, ProductionLine.Task task) throws JSONException {
-        ProductionLine line = findProductionLineById(productionLineId);
-        if (line != null) {
-            line.addTask(task);
-            saveProductionLines();
-            System.out.println("Task added to production line: " + line.name);
-        } else {
-            System.out.println("Production line with ID " + productionLineId + " not found.");
+    // Gives the line's tasks that have no id (0 or less) one of their own; false when another task has one of
+    // its explicit ids
+    private boolean claimTaskIds(ProductionLine line) {
+        for (ProductionLine.Task task : line.tasks) {
+            if (task.id > 0 && indexes.taskIds.contains(task.id)) {
+                System.out.println("Task with ID " + task.id + " already exists.");
+                return false;
+            }
+        }
+        for (ProductionLine.Task task : line.tasks) {
+            task.id = claimId(ids.tasks, task.id, indexes.taskIds, "Task");
         }
+        return true;
     }
 
-    public void removeTaskFromProductionLine(int productionLineId, int taskId) throws JSONException {
-        ProductionLine line = findProductionLineById(productionLineId);
-        if (line != null) {
-            ProductionLine.Task taskToRemove = null;
-            for (ProductionLine.Task task : line.tasks) {
-                if (task.id == taskId) {
-                    taskToRemove = task;
-                    break;
-                }
+    // ------------ TASK MANAGEMENT ------------
+    public void addTaskToProductionLine(int productionLineId, ProductionLine.Task task) throws JSONException {
+        write(productionLinesLock, () -> {
+            ProductionLine line = indexes.productionLinesById.get(productionLineId);
+            if (line != null) {
+                int id = claimId(ids.tasks, task.id, indexes.taskIds, "Task");
+                if (id < 0) return;
+                task.id = id;
+                line.addTask(task);
+                indexes.addTask(line, task);
+                indexes.updateProductionLine(line);
+                journal(productionLinesDirty, j -> j.putTask(line.id, task));
+                journal(productionLinesDirty, j -> j.updateProductionLine(line));
+                System.out.println("Task added to production line: " + line.name);
+            } else {
+                System.out.println("Production line with ID " + productionLineId + " not found.");
             }
+        });
+    }
 
-            if (taskToRemove != null && line.tasks.remove(taskToRemove)) {
-                // Update production line state if no tasks remain
-                if (line.tasks.isEmpty()) {
-                    line.state = "inactive";
+    public void removeTaskFromProductionLine(int productionLineId, int taskId) throws JSONException {
+        write(productionLinesLock, () -> {
+            ProductionLine line = indexes.productionLinesById.get(productionLineId);
+            if (line != null) {
+                ProductionLine.Task taskToRemove = findTaskInLine(line, taskId);
+                if (taskToRemove != null && line.tasks.remove(taskToRemove)) {
+                    indexes.removeTask(taskToRemove);
+                    journal(productionLinesDirty, j -> j.deleteTask(line.id, taskId));
+                    // Update production line state if no tasks remain
+                    if (line.tasks.isEmpty()) {
+                        line.state = "inactive";
+                        indexes.updateProductionLine(line);
+                        journal(productionLinesDirty, j -> j.updateProductionLine(line));
+                    }
+                    System.out.println("Task removed from production line: " + line.name);
+                } else {
+                    System.out.println("Task with ID " + taskId + " not found in production line.");
                 }
-                saveProductionLines();
-                System.out.println("Task removed from production line: " + line.name);
             } else {
-                System.out.println("Task with ID " + taskId + " not found in production line.");
+                System.out.println("Production line with ID " + productionLineId + " not found.");
             }
-        } else {
-            System.out.println("Production line with ID " + productionLineId + " not found.");
-        }
+        });
     }
 
     public void updateTaskState(int productionLineId, int taskId, String newState) throws JSONException {
-        ProductionLine line = findProductionLineById(productionLineId);
-        if (line != null) {
-            for (ProductionLine.Task task : line.tasks) {
-                if (task.id == taskId) {
+        write(productionLinesLock, () -> {
+            ProductionLine line = indexes.productionLinesById.get(productionLineId);
+            if (line != null) {
+                ProductionLine.Task task = findTaskInLine(line, taskId);
+                if (task != null) {
                     task.state = newState;
-                    saveProductionLines();
+                    indexes.updateTask(line, task);
+                    journal(productionLinesDirty, j -> j.putTask(line.id, task));
                     System.out.println("Task state updated to: " + newState);
                     return;
                 }
+                System.out.println("Task with ID " + taskId + " not found in production line.");
+            } else {
+                System.out.println("Production line with ID " + productionLineId + " not found.");
             }
-            System.out.println("Task with ID " + taskId + " not found in production line.");
-        } else {
-            System.out.println("Production line with ID " + productionLineId + " not found.");
-        }
+        });
     }
 
     public void updateTaskProgress(int productionLineId, int taskId, double progress) throws JSONException {
-        ProductionLine line = findProductionLineById(productionLineId);
-        if (line != null) {
-            for (ProductionLine.Task task : line.tasks) {
-                if (task.id == taskId) {
+        write(productionLinesLock, () -> {
+            ProductionLine line = indexes.productionLinesById.get(productionLineId);
+            if (line != null) {
+                ProductionLine.Task task = findTaskInLine(line, taskId);
+                if (task != null) {
                     task.progress = progress;
-                    saveProductionLines();
+                    journal(productionLinesDirty, j -> j.putTask(line.id, task));
                     System.out.println("Task progress updated to: " + progress + "%");
                     return;
                 }
+                System.out.println("Task with ID " + taskId + " not found in production line.");
+            } else {
+                System.out.println("Production line with ID " + productionLineId + " not found.");
             }
-            System.out.println("Task with ID " + taskId + " not found in production line.");
-        } else {
-            System.out.println("Production line with ID " + productionLineId + " not found.");
+        });
+    }
+
+    public void updateTask(ProductionLine.Task updatedTask) throws JSONException {
+        write(productionLinesLock, () -> replaceTask(updatedTask));
+    }
+
+    // Applies the edit to the task under the production lines lock, so concurrent edits are never lost. The edit
+    // returns whether it changed anything; only then is the task re-indexed and saved. Returns the edit's answer.
+    public boolean editTask(int taskId, Predicate<ProductionLine.Task> edit) throws JSONException {
+        boolean[] changed = {false};
+        write(productionLinesLock, () -> {
+            ProductionLine.Task task = indexes.tasksById.get(taskId);
+            if (task == null) {
+                System.out.println("Task with ID " + taskId + " not found for update.");
+                return;
+            }
+            changed[0] = edit.test(task);
+            if (changed[0]) replaceTask(task);
+        });
+        return changed[0];
+    }
+
+    private void replaceTask(ProductionLine.Task updatedTask) throws JSONException {
+        ProductionLine.Task existing = indexes.tasksById.get(updatedTask.id);
+        if (existing == null) {
+            System.out.println("Task with ID " + updatedTask.id + " not found for update.");
+            return;
         }
+        ProductionLine line = indexes.productionLinesByTaskId.get(updatedTask.id);
+        if (existing != updatedTask) line.tasks.set(line.tasks.indexOf(existing), updatedTask);
+        // state, product or customer may have been edited in place
+        indexes.removeTask(existing);
+        indexes.addTask(line, updatedTask);
+        journal(productionLinesDirty, j -> j.putTask(line.id, updatedTask));
+        System.out.println("Task updated: " + updatedTask.productName);
     }
 
     public void updateProductionLineState(int productionLineId, String newState) throws JSONException {
-        ProductionLine line = findProductionLineById(productionLineId);
-        if (line != null) {
-            line.state = newState;
-            saveProductionLines();
-            System.out.println("Production line state updated to: " + newState);
-        } else {
-            System.out.println("Production line with ID " + productionLineId + " not found.");
-        }
+        write(productionLinesLock, () -> {
+            ProductionLine line = indexes.productionLinesById.get(productionLineId);
+            if (line != null) {
+                line.state = newState;
+                indexes.updateProductionLine(line);
+                journal(productionLinesDirty, j -> j.updateProductionLine(line));
+                System.out.println("Production line state updated to: " + newState);
+            } else {
+                System.out.println("Production line with ID " + productionLineId + " not found.");
+            }
+        });
+    }
+
+    // The task index answers by id; the owning line still has to match
+    private ProductionLine.Task findTaskInLine(ProductionLine line, int taskId) {
+        return indexes.productionLinesByTaskId.get(taskId) == line ? indexes.tasksById.get(taskId) : null;
     }
 
     // ------------ TASK QUERIES ------------
     public List<ProductionLine.Task> getAllTasks() {
-        List<ProductionLine.Task> allTasks = new ArrayList<>();
-        for (ProductionLine line : productionLines) {
-            allTasks.addAll(line.tasks);
-        }
-        return allTasks;
+        return productionLinesLock.read(() -> {
+            List<ProductionLine.Task> allTasks = new ArrayList<>();
+            for (ProductionLine line : productionLines) {
+                allTasks.addAll(line.tasks);
+            }
+            return allTasks;
+        });
     }
 
+    // Results are ordered by id
     public List<ProductionLine.Task> getTasksByState(String state) {
-        List<ProductionLine.Task> result = new ArrayList<>();
-        for (ProductionLine line : productionLines) {
-            for (ProductionLine.Task task : line.tasks) {
-                if (task.state != null && task.state.equalsIgnoreCase(state)) {
-                    result.add(task);
-                }
-            }
-        }
-        return result;
+        return tasks().where(Attributes.Tasks.STATE.eq(state)).list();
     }
 
     public List<ProductionLine.Task> getTasksByProduct(String productName) {
-        List<ProductionLine.Task> result = new ArrayList<>();
-        for (ProductionLine line : productionLines) {
-            for (ProductionLine.Task task : line.tasks) {
-                if (task.productName != null && task.productName.equalsIgnoreCase(productName)) {
-                    result.add(task);
-                }
-            }
-        }
-        return result;
+        return tasks().where(Attributes.Tasks.PRODUCT_NAME.eq(productName)).list();
     }
 
     public List<ProductionLine.Task> getTasksByCustomer(String customer) {
-        List<ProductionLine.Task> result = new ArrayList<>();
-        for (ProductionLine line : productionLines) {
-            for (ProductionLine.Task task : line.tasks) {
-                if (task.customer != null && task.customer.equalsIgnoreCase(customer)) {
-                    result.add(task);
-                }
-            }
+        return tasks().where(Attributes.Tasks.CUSTOMER.eq(customer)).list();
+    }
+
+    // Tasks matching every given filter (null or empty means "any"), ordered by id
+    public List<ProductionLine.Task> findTasks(String productionLineName, String productName, String state,
+                                               String customer) {
+        Query<ProductionLine.Task> query = tasks();
+        if (productionLineName != null && !productionLineName.isEmpty()) {
+            query.where(Attributes.Tasks.PRODUCTION_LINE_NAME.eq(productionLineName));
         }
+        if (productName != null && !productName.isEmpty()) query.where(Attributes.Tasks.PRODUCT_NAME.eq(productName));
+        if (state != null && !state.isEmpty()) query.where(Attributes.Tasks.STATE.eq(state));
+        if (customer != null && !customer.isEmpty()) query.where(Attributes.Tasks.CUSTOMER.eq(customer));
+        return query.list();
+    }
+
+    // ------------ SCHEDULE QUERIES ------------
+    // Dates are inclusive days; a task's schedule runs from its starting date through its finishing date.
+    // Results are ordered by id.
+    public List<ProductionLine.Task> findTasksOverlapping(LocalDate from, LocalDate to) {
+        return productionLinesLock.read(() ->
+                tasksOf(indexes.schedule.overlapping(TaskSchedule.epochDay(from), TaskSchedule.epochDay(to))));
+    }
+
+    public List<ProductionLine.Task> findTasksOverlapping(int productionLineId, LocalDate from, LocalDate to) {
+        return productionLinesLock.read(() -> tasksOf(indexes.schedule.overlapping(productionLineId,
+                TaskSchedule.epochDay(from), TaskSchedule.epochDay(to))));
+    }
+
+    // Tasks scheduled to be running on the day
+    public List<ProductionLine.Task> findTasksActiveOn(LocalDate day) {
+        return findTasksOverlapping(day, day);
+    }
+
+    public List<ProductionLine.Task> findTasksDueBetween(LocalDate from, LocalDate to) {
+        return tasks().where(Attributes.Tasks.FINISHING_DATE.between(from, to)).list();
+    }
+
+    // Ongoing tasks whose finishing date is before today
+    public List<ProductionLine.Task> findOverdueTasks(LocalDate today) {
+        return tasks().where(Attributes.Tasks.STATE.eq("ongoing"))
+                .and(Attributes.Tasks.FINISHING_DATE.lt(today))
+                .list();
+    }
+
+    // Other tasks of the same production line whose schedule overlaps this task's
+    public List<ProductionLine.Task> findConflictingTasks(ProductionLine.Task task) {
+        return productionLinesLock.read(() -> {
+            ProductionLine line = indexes.productionLinesByTaskId.get(task.id);
+            if (line == null || task.startingDay == TaskSchedule.NO_DATE || task.finishingDay == TaskSchedule.NO_DATE) {
+                return new ArrayList<>();
+            }
+            RoaringBitmap ids = indexes.schedule.overlapping(line.id, task.startingDay, task.finishingDay);
+            ids.remove(task.id);
+            return tasksOf(ids);
+        });
+    }
+
+    private List<ProductionLine.Task> tasksOf(RoaringBitmap taskIds) {
+        List<ProductionLine.Task> result = new ArrayList<>(taskIds.cardinality());
+        taskIds.forEach(id -> result.add(indexes.tasksById.get(id)));
         return result;
     }
 
+    // ------------ AGGREGATES ------------
+    // Running totals, safe to read from any thread without locking
+    public InventoryAggregates aggregates() {
+        return indexes.aggregates;
+    }
+
+    // ------------ QUERIES ------------
+    // Each call starts a new query; see Query for how its conditions are planned
+    public Query<ProductionLine.Task> tasks() {
+        return new Query<>(this, taskSource);
+    }
+
+    public Query<Item> items() {
+        return new Query<>(this, itemSource);
+    }
+
+    public Query<Product> products() {
+        return new Query<>(this, productSource);
+    }
+
+    public Query<ProductionLine> productionLines() {
+        return new Query<>(this, productionLineSource);
+    }
+
+    private static <T> RoaringBitmap idOf(T entity, ToIntFunction<T> id) {
+        return entity == null ? new RoaringBitmap() : RoaringBitmap.of(id.applyAsInt(entity));
+    }
+
     // ------------ DISPLAY FUNCTIONS ------------
     public void printProductionLines() {
-        System.out.println("\n=== PRODUCTION LINES (" + productionLines.size() + " lines) ===");
-        for (ProductionLine line : productionLines) {
-            System.out.printf("ID: %d, Name: %s, State: %s, Tasks: %d%n",
-                    line.id, line.name, line.state, line.tasks.size());
-
-            // Print tasks for this production line
-            if (!line.tasks.isEmpty()) {
-                System.out.println("  Tasks:");
-                for (ProductionLine.Task task : line.tasks) {
-                    System.out.printf("    - Task ID: %d, Product: %s, Quantity: %d, State: %s, Progress: %.2f%%%n",
-                            task.id, task.productName != null ? task.productName : "N/A",
-                            task.quantity, task.state, task.progress);
+        productionLinesLock.read(() -> {
+            System.out.println("\n=== PRODUCTION LINES (" + productionLines.size() + " lines) ===");
+            for (ProductionLine line : productionLines) {
+                System.out.printf("ID: %d, Name: %s, State: %s, Tasks: %d%n",
+                        line.id, line.name, line.state, line.tasks.size());
+
+                // Print tasks for this production line
+                if (!line.tasks.isEmpty()) {
+                    System.out.println("  Tasks:");
+                    for (ProductionLine.Task task : line.tasks) {
+                        System.out.printf("    - Task ID: %d, Product: %s, Quantity: %d, State: %s, Progress: %.2f%%%n",
+                                task.id, task.productName != null ? task.productName : "N/A",
+                                task.quantity, task.state, task.progress);
+                    }
                 }
             }
-        }
-        System.out.println("=======================================\n");
+            System.out.println("=======================================\n");
+        });
     }
 
     public void printProductionLineDetails(int id) {
-        ProductionLine line = findProductionLineById(id);
-        if (line != null) {
-            System.out.println("\n=== PRODUCTION LINE DETAILS ===");
-            System.out.println("ID: " + line.id);
-            System.out.println("Name: " + line.name);
-            System.out.println("State: " + line.state);
-            System.out.println("Number of Tasks: " + line.tasks.size());
-
-            if (!line.tasks.isEmpty()) {
-                System.out.println("\nTasks:");
-                for (ProductionLine.Task task : line.tasks) {
-                    System.out.println("  Task ID: " + task.id);
-                    System.out.println("  Product: " + (task.productName != null ? task.productName : "N/A"));
-                    System.out.println("  Quantity: " + task.quantity);
-                    System.out.println("  Customer: " + task.customer);
-                    System.out.println("  Start Date: " + task.startingDate);
-                    System.out.println("  Finish Date: " + task.finishingDate);
-                    System.out.println("  State: " + task.state);
-                    System.out.println("  Progress: " + task.progress + "%");
-                    System.out.println("  ---");
+        productionLinesLock.read(() -> {
+            ProductionLine line = findProductionLineById(id);
+            if (line != null) {
+                System.out.println("\n=== PRODUCTION LINE DETAILS ===");
+                System.out.println("ID: " + line.id);
+                System.out.println("Name: " + line.name);
+                System.out.println("State: " + line.state);
+                System.out.println("Number of Tasks: " + line.tasks.size());
+
+                if (!line.tasks.isEmpty()) {
+                    System.out.println("\nTasks:");
+                    for (ProductionLine.Task task : line.tasks) {
+                        System.out.println("  Task ID: " + task.id);
+                        System.out.println("  Product: " + (task.productName != null ? task.productName : "N/A"));
+                        System.out.println("  Quantity: " + task.quantity);
+                        System.out.println("  Customer: " + task.customer);
+                        System.out.println("  Start Date: " + task.startingDate);
+                        System.out.println("  Finish Date: " + task.finishingDate);
+                        System.out.println("  State: " + task.state);
+                        System.out.println("  Progress: " + task.progress + "%");
+                        System.out.println("  ---");
+                    }
                 }
+                System.out.println("===============================\n");
+            } else {
+                System.out.println("Production line with ID " + id + " not found.");
             }
-            System.out.println("===============================\n");
-        } else {
-            System.out.println("Production line with ID " + id + " not found.");
-        }
+        });
     }
 
     // ====================== SUMMARY FUNCTIONS ========================
     public void printSummary() {
+        InventoryAggregates totals = indexes.aggregates;
         System.out.println("\n=== INVENTORY SUMMARY ===");
-        System.out.println("Items: " + items.size());
-        System.out.println("Products: " + products.size());
-        System.out.println("Production Lines: " + productionLines.size());
+        System.out.println("Items: " + itemsLock.read(() -> items.size()));
+        System.out.printf("Stock value: %.2f%n", totals.totalStockValue());
+        System.out.println("Items under minimum stock: " + totals.itemsBelowMinimum()
+                + " (" + totals.itemsOutOfStock() + " out of stock)");
+        System.out.println("Products: " + productsLock.read(() -> products.size()));
+        System.out.println("Production Lines: " + productionLinesLock.read(() -> productionLines.size()));
+        System.out.println("Tasks: " + totals.taskCount() + " " + totals.taskCountsByState());
+        System.out.println("Units on order: " + totals.unitsOnOrder());
         System.out.println("Items File: " + itemsFilePath);
         System.out.println("Products File: " + productsFilePath);
         System.out.println("Production Lines File: " + productLineFilePath);
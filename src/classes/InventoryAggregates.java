@@ -0,0 +1,173 @@
+package classes;
+
+import classes.index.IntHashIndex;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// Running totals over the inventory, kept up to date by InventoryIndexes on every add and remove, so reading one
+// costs the same at any data size. Reads take no lock and may run on any thread (e.g. the GUI) while the inventory
+// is being changed; a read sees each counter as of some recent mutation.
+// Every entity's contribution is remembered by id, so removing an entity that was edited in place subtracts what
+// was actually added.
+public class InventoryAggregates {
+    private static final String ONGOING = "ongoing"; // tasks in this state have their units on order
+
+    private record ItemContribution(double value, boolean belowMinimum, boolean outOfStock) {}
+
+    private record TaskContribution(int lineId, String state, String productName, int quantity) {}
+
+    // ================ ITEMS ================
+    private final LongAdder itemCount = new LongAdder();
+    private final DoubleAdder stockValue = new DoubleAdder();
+    private final LongAdder itemsBelowMinimum = new LongAdder();
+    private final LongAdder itemsOutOfStock = new LongAdder();
+    private final IntHashIndex<ItemContribution> itemContributions = new IntHashIndex<>();
+
+    // ================ TASKS ================
+    private final LongAdder taskCount = new LongAdder();
+    private final Map<String, LongAdder> tasksByState = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, LongAdder>> tasksByLineAndState = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> unitsOnOrder = new ConcurrentHashMap<>();
+    private final IntHashIndex<TaskContribution> taskContributions = new IntHashIndex<>();
+
+    // ========== READS ==========
+
+    public long itemCount() {
+        return itemCount.sum();
+    }
+
+    // Sum of price * stock over all items
+    public double totalStockValue() {
+        return stockValue.sum();
+    }
+
+    // Items that are not "available": at or under their minimum stock, including those out of stock
+    public long itemsBelowMinimum() {
+        return itemsBelowMinimum.sum();
+    }
+
+    public long itemsOutOfStock() {
+        return itemsOutOfStock.sum();
+    }
+
+    public long taskCount() {
+        return taskCount.sum();
+    }
+
+    // States compare ignoring case, like the task finders
+    public long taskCount(String state) {
+        LongAdder count = state == null ? null : tasksByState.get(InventoryIndexes.normalize(state));
+        return count == null ? 0 : count.sum();
+    }
+
+    public long taskCount(int productionLineId, String state) {
+        Map<String, LongAdder> byState = tasksByLineAndState.get(productionLineId);
+        LongAdder count = byState == null || state == null ? null : byState.get(InventoryIndexes.normalize(state));
+        return count == null ? 0 : count.sum();
+    }
+
+    // State (lower case) -> task count, for all tasks or for one production line
+    public Map<String, Long> taskCountsByState() {
+        return snapshot(tasksByState);
+    }
+
+    public Map<String, Long> taskCountsByState(int productionLineId) {
+        Map<String, LongAdder> byState = tasksByLineAndState.get(productionLineId);
+        return byState == null ? Collections.emptyMap() : snapshot(byState);
+    }
+
+    // Total quantity of the product's ongoing tasks
+    public long unitsOnOrder(String productName) {
+        LongAdder units = productName == null ? null : unitsOnOrder.get(InventoryIndexes.normalize(productName));
+        return units == null ? 0 : units.sum();
+    }
+
+    // Product name (lower case) -> units on order
+    public Map<String, Long> unitsOnOrder() {
+        return snapshot(unitsOnOrder);
+    }
+
+    // ========== MAINTENANCE ==========
+
+    void addItem(Item item) {
+        boolean outOfStock = item.stock == 0;
+        ItemContribution contribution = new ItemContribution(item.price * item.stock,
+                outOfStock || item.stock <= item.minimumStock, outOfStock);
+        ItemContribution replaced = itemContributions.put(item.id, contribution);
+        if (replaced != null) apply(replaced, -1);
+        apply(contribution, 1);
+    }
+
+    void removeItem(int itemId) {
+        ItemContribution contribution = itemContributions.remove(itemId);
+        if (contribution != null) apply(contribution, -1);
+    }
+
+    void clearItems() {
+        itemContributions.clear();
+        itemCount.reset();
+        stockValue.reset();
+        itemsBelowMinimum.reset();
+        itemsOutOfStock.reset();
+    }
+
+    void addTask(int productionLineId, ProductionLine.Task task) {
+        TaskContribution contribution = new TaskContribution(productionLineId, InventoryIndexes.key(task.state),
+                InventoryIndexes.normalize(task.productName), task.quantity);
+        TaskContribution replaced = taskContributions.put(task.id, contribution);
+        if (replaced != null) apply(replaced, -1);
+        apply(contribution, 1);
+    }
+
+    void removeTask(int taskId) {
+        TaskContribution contribution = taskContributions.remove(taskId);
+        if (contribution != null) apply(contribution, -1);
+    }
+
+    void clearTasks() {
+        taskContributions.clear();
+        taskCount.reset();
+        tasksByState.clear();
+        tasksByLineAndState.clear();
+        unitsOnOrder.clear();
+    }
+
+    // ========== PRIVATE HELPERS ==========
+
+    private void apply(ItemContribution contribution, int sign) {
+        itemCount.add(sign);
+        stockValue.add(sign * contribution.value());
+        if (contribution.belowMinimum()) itemsBelowMinimum.add(sign);
+        if (contribution.outOfStock()) itemsOutOfStock.add(sign);
+    }
+
+    private void apply(TaskContribution contribution, int sign) {
+        taskCount.add(sign);
+        if (contribution.state() != null) {
+            counter(tasksByState, contribution.state()).add(sign);
+            counter(tasksByLineAndState.computeIfAbsent(contribution.lineId(), id -> new ConcurrentHashMap<>()),
+                    contribution.state()).add(sign);
+        }
+        if (ONGOING.equals(contribution.state()) && contribution.productName() != null) {
+            counter(unitsOnOrder, contribution.productName()).add((long) sign * contribution.quantity());
+        }
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counters, String key) {
+        return counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new HashMap<>();
+        counters.forEach((key, count) -> {
+            long sum = count.sum();
+            if (sum != 0) result.put(key, sum);
+        });
+        return result;
+    }
+}
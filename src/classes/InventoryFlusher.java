@@ -0,0 +1,73 @@
+package classes;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Write-behind for Inventory: dirty collections are written by one background thread at most once per interval,
+// plus once more when the JVM shuts down. Requests that arrive while a flush is queued are merged into it.
+class InventoryFlusher {
+    private final Inventory inventory;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private final Thread shutdownHook;
+    private ScheduledFuture<?> periodic;
+
+    InventoryFlusher(Inventory inventory) {
+        this.inventory = inventory;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.shutdownHook = new Thread(inventory::close, "inventory-shutdown");
+    }
+
+    synchronized void start(long intervalMillis) {
+        schedule(intervalMillis);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    synchronized void setInterval(long intervalMillis) {
+        if (periodic != null) {
+            periodic.cancel(false);
+            schedule(intervalMillis);
+        }
+    }
+
+    // Asks for a flush as soon as the flusher thread is free
+    void request() {
+        if (queued.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                queued.set(false); // stopped, close() flushes instead
+            }
+        }
+    }
+
+    synchronized void stop() {
+        if (periodic == null) return;
+        periodic.cancel(false);
+        periodic = null;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // already shutting down, the hook is what called us
+        }
+    }
+
+    private void schedule(long intervalMillis) {
+        periodic = executor.scheduleWithFixedDelay(this::run, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        queued.set(false);
+        inventory.flushQuietly();
+    }
+}
@@ -0,0 +1,229 @@
+package classes;
+
+import classes.index.BitmapIndex;
+import classes.index.IntHashIndex;
+import classes.index.RoaringBitmap;
+import classes.index.SecondaryIndex;
+import mapper.SymbolTable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Lookup structures over the Inventory lists. Inventory keeps them in step with every mutation it makes and
+// rebuilds them after anything that replaces or edits the lists wholesale (loads, snapshot, journal replay).
+class InventoryIndexes {
+    final IntHashIndex<Item> itemsById = new IntHashIndex<>();
+    final IntHashIndex<Product> productsById = new IntHashIndex<>();
+    final IntHashIndex<ProductionLine> productionLinesById = new IntHashIndex<>();
+    final IntHashIndex<ProductionLine.Task> tasksById = new IntHashIndex<>();
+    final IntHashIndex<ProductionLine> productionLinesByTaskId = new IntHashIndex<>();
+    // Every indexed id in order, for id-ordered queries and pages
+    final RoaringBitmap itemIds = new RoaringBitmap();
+    final RoaringBitmap productIds = new RoaringBitmap();
+    final RoaringBitmap productionLineIds = new RoaringBitmap();
+    final RoaringBitmap taskIds = new RoaringBitmap();
+    final NameIndex<Item> itemsByName = new NameIndex<>();
+    final NameIndex<Product> productsByName = new NameIndex<>();
+    final NameIndex<ProductionLine> productionLinesByName = new NameIndex<>();
+    final SecondaryIndex<Item> itemsByCategory = new SecondaryIndex<>(item -> item.id, item -> key(item.category));
+    final SecondaryIndex<ProductionLine> productionLinesByState =
+            new SecondaryIndex<>(line -> line.id, line -> key(line.state));
+    // Task attributes are bitmaps of task ids, so filters on several of them combine without visiting tasks
+    final BitmapIndex tasksByLine = new BitmapIndex();
+    final BitmapIndex tasksByState = new BitmapIndex();
+    final BitmapIndex tasksByProduct = new BitmapIndex();
+    final BitmapIndex tasksByCustomer = new BitmapIndex();
+    final ItemColumns itemColumns = new ItemColumns();
+    final TaskSchedule schedule = new TaskSchedule();
+    // Totals follow the id indexes: an entity counts while it owns its id
+    final InventoryAggregates aggregates = new InventoryAggregates();
+
+    void rebuild(List<Item> items, List<Product> products, List<ProductionLine> productionLines) {
+        rebuildItems(items);
+        rebuildProducts(products);
+        rebuildProductionLines(productionLines);
+    }
+
+    // ========== ITEMS ==========
+
+    void rebuildItems(List<Item> items) {
+        itemsById.clear();
+        itemIds.clear();
+        aggregates.clearItems();
+        itemColumns.clear();
+        itemsByName.clear();
+        itemsByCategory.clear();
+        for (Item item : items) addItem(item);
+    }
+
+    void addItem(Item item) {
+        itemsById.put(item.id, item);
+        itemIds.add(item.id);
+        aggregates.addItem(item);
+        itemColumns.add(item);
+        itemsByName.add(item.id, item.name, item);
+        itemsByCategory.add(item);
+    }
+
+    void removeItem(Item item) {
+        if (itemsById.remove(item.id, item)) {
+            itemIds.remove(item.id);
+            aggregates.removeItem(item.id);
+            itemColumns.remove(item.id);
+        }
+        itemsByName.remove(item.id, item);
+        itemsByCategory.remove(item);
+    }
+
+    // ========== PRODUCTS ==========
+
+    void rebuildProducts(List<Product> products) {
+        productsById.clear();
+        productIds.clear();
+        productsByName.clear();
+        for (Product product : products) addProduct(product);
+    }
+
+    void addProduct(Product product) {
+        productsById.put(product.id, product);
+        productIds.add(product.id);
+        productsByName.add(product.id, product.name, product);
+    }
+
+    void removeProduct(Product product) {
+        if (productsById.remove(product.id, product)) productIds.remove(product.id);
+        productsByName.remove(product.id, product);
+    }
+
+    // ========== PRODUCTION LINES & TASKS ==========
+
+    void rebuildProductionLines(List<ProductionLine> productionLines) {
+        productionLinesById.clear();
+        productionLineIds.clear();
+        productionLinesByName.clear();
+        productionLinesByState.clear();
+        tasksById.clear();
+        taskIds.clear();
+        aggregates.clearTasks();
+        schedule.startBulk();
+        productionLinesByTaskId.clear();
+        tasksByLine.clear();
+        tasksByState.clear();
+        tasksByProduct.clear();
+        tasksByCustomer.clear();
+        for (ProductionLine line : productionLines) addProductionLine(line);
+        schedule.finishBulk();
+    }
+
+    void addProductionLine(ProductionLine line) {
+        productionLinesById.put(line.id, line);
+        productionLineIds.add(line.id);
+        productionLinesByName.add(line.id, line.name, line);
+        productionLinesByState.add(line);
+        for (ProductionLine.Task task : line.tasks) addTask(line, task);
+    }
+
+    void removeProductionLine(ProductionLine line) {
+        if (productionLinesById.remove(line.id, line)) productionLineIds.remove(line.id);
+        productionLinesByName.remove(line.id, line);
+        productionLinesByState.remove(line);
+        // by the ids filed under the line, not its current list, which may have lost tasks in place
+        for (int taskId : tasksByLine.get(line.id).toArray()) {
+            if (productionLinesByTaskId.get(taskId) == line) removeTask(tasksById.get(taskId));
+        }
+    }
+
+    // Re-files a line whose name or state was edited in place, without touching its tasks
+    void updateProductionLine(ProductionLine line) {
+        productionLinesByName.remove(line.id, line);
+        productionLinesByName.add(line.id, line.name, line);
+        productionLinesByState.update(line);
+    }
+
+    void addTask(ProductionLine line, ProductionLine.Task task) {
+        tasksById.put(task.id, task);
+        taskIds.add(task.id);
+        aggregates.addTask(line.id, task);
+        schedule.add(line.id, task);
+        productionLinesByTaskId.put(task.id, line);
+        tasksByLine.add(task.id, line.id);
+        tasksByState.add(task.id, key(task.state));
+        tasksByProduct.add(task.id, normalize(task.productName));
+        tasksByCustomer.add(task.id, normalize(task.customer));
+    }
+
+    // The bitmaps only know ids, so they are cleared only when this task still owns its id
+    void removeTask(ProductionLine.Task task) {
+        if (!tasksById.remove(task.id, task)) return;
+        productionLinesByTaskId.remove(task.id);
+        taskIds.remove(task.id);
+        aggregates.removeTask(task.id);
+        schedule.remove(task.id);
+        tasksByLine.remove(task.id);
+        tasksByState.remove(task.id);
+        tasksByProduct.remove(task.id);
+        tasksByCustomer.remove(task.id);
+    }
+
+    // Re-files a task whose fields were edited in place
+    void updateTask(ProductionLine line, ProductionLine.Task task) {
+        removeTask(task);
+        addTask(line, task);
+    }
+
+    // ========== NAMES ==========
+
+    // Names compare like equalsIgnoreCase, which the name lookups have always used. Symbols already have their
+    // lower-case form cached, anything else is lowered without being added to the symbol table.
+    static String normalize(String name) {
+        if (name == null) return null;
+        String symbol = SymbolTable.SHARED.lowerCaseIfPresent(name);
+        return symbol != null ? symbol : name.toLowerCase(Locale.ROOT);
+    }
+
+    // Key of a @JsonSymbol field (state, category): the canonical lower-case symbol, so the indexes and aggregates
+    // share one instance per distinct value. Product names and customers are keyed by normalize(), since they are
+    // typed in freely and the shared table never forgets an entry.
+    static String key(String value) {
+        return SymbolTable.SHARED.internLowerCase(value);
+    }
+
+    // Unique case-insensitive name -> entity. It remembers the name each entity was indexed under, so an entity
+    // renamed in place can still be found and removed under its old key.
+    static class NameIndex<T> {
+        private final Map<String, T> byName = new HashMap<>();
+        private final IntHashIndex<String> indexedNames = new IntHashIndex<>();
+
+        T get(String name) {
+            return name == null ? null : byName.get(normalize(name));
+        }
+
+        // True when another entity already owns the name
+        boolean isTaken(String name, T self) {
+            T owner = get(name);
+            return owner != null && owner != self;
+        }
+
+        String indexedName(int id) {
+            return indexedNames.get(id);
+        }
+
+        // Loaded data may already hold duplicates: the first entity keeps the name, like the old list scans
+        void add(int id, String name, T entity) {
+            if (name == null) return;
+            if (byName.putIfAbsent(normalize(name), entity) == null) indexedNames.put(id, name);
+        }
+
+        void remove(int id, T entity) {
+            String name = indexedNames.get(id);
+            if (name != null && byName.remove(normalize(name), entity)) indexedNames.remove(id);
+        }
+
+        void clear() {
+            byName.clear();
+            indexedNames.clear();
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package classes;
+
+import mapper.SymbolTable;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead log of Inventory mutations, replayed on top of the last checkpoint at startup.
+//
+// Record layout (big-endian): int payloadLength, int crc32(payload), then the payload: byte op + fields.
+// Records set state instead of applying deltas (an item record carries the whole item, a task record the whole
+// task), so replaying a record whose effect already reached the JSON files is harmless.
+// A checkpoint moves the live file aside to <name>.old, rewrites the JSON files and then deletes <name>.old.
+// Recovery replays <name>.old (left behind by an interrupted checkpoint) and then the live file.
+class InventoryJournal implements Closeable {
+    static final byte PUT_ITEM = 1;
+    static final byte DELETE_ITEM = 2;
+    static final byte PUT_PRODUCT = 3;
+    static final byte DELETE_PRODUCT = 4;
+    static final byte PUT_LINE = 5;    // whole line including its tasks
+    static final byte UPDATE_LINE = 6; // name, state and notes only
+    static final byte DELETE_LINE = 7;
+    static final byte PUT_TASK = 8;
+    static final byte DELETE_TASK = 9;
+
+    private static final int HEADER_SIZE = 8;
+
+    private final Path path;
+    private final Path rotatedPath;
+    private final RecordBuffer record = new RecordBuffer();
+    private final DataOutputStream fields = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private long size;
+    private Inventory.JournalSync sync = Inventory.JournalSync.PERIODIC;
+    private long syncIntervalMillis = 1000;
+    private long lastSync;
+
+    InventoryJournal(File file) {
+        this.path = file.toPath();
+        this.rotatedPath = path.resolveSibling(path.getFileName() + ".old");
+    }
+
+    synchronized void setSync(Inventory.JournalSync sync, long syncIntervalMillis) {
+        this.sync = sync;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    // Bytes appended since the last checkpoint
+    synchronized long size() {
+        return size;
+    }
+
+    // ========== REPLAY ==========
+
+    // Applies every intact record to the lists and returns how many were applied. A record torn by a crash
+    // mid-append ends the replay of its file and is cut off the live file.
+    // Records are applied to id-keyed maps built once up front, then written back, so each costs O(1) however
+    // large the lists are.
+    int replay(List<Item> items, List<Product> products, List<ProductionLine> productionLines) throws IOException {
+        Replay replay = new Replay(items, products, productionLines);
+        int count = 0;
+        if (Files.exists(rotatedPath)) count += replay(rotatedPath, false, replay);
+        if (Files.exists(path)) count += replay(path, true, replay);
+        if (count > 0) replay.writeBack(items, products, productionLines);
+        return count;
+    }
+
+    private int replay(Path file, boolean truncateTail, Replay replay) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        int count = 0;
+        int good = 0;
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) break;
+
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            if ((int) crc.getValue() != checksum) break;
+
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            try {
+                apply(payload, replay);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Corrupted journal record at offset " + good + ": " + file, e);
+            }
+            good = buffer.position();
+            count++;
+        }
+
+        if (good < buffer.limit()) {
+            System.out.println("Journal " + file + " ends with " + (buffer.limit() - good) +
+                    " bytes of an incomplete record, discarding them");
+            if (truncateTail) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(good);
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void apply(ByteBuffer in, Replay replay) throws IOException {
+        byte op = in.get();
+        switch (op) {
+            case PUT_ITEM -> {
+                Item item = readItem(in);
+                replay.items.put(item.id, item);
+            }
+            case DELETE_ITEM -> replay.items.remove(in.getInt());
+            case PUT_PRODUCT -> {
+                Product product = readProduct(in);
+                replay.products.put(product.id, product);
+            }
+            case DELETE_PRODUCT -> replay.products.remove(in.getInt());
+            case PUT_LINE -> {
+                ProductionLine line = readLine(in);
+                replay.productionLines.put(line.id, line);
+                replay.tasks.remove(line.id); // the new line brings its own tasks
+            }
+            case UPDATE_LINE -> {
+                ProductionLine line = replay.productionLines.get(in.getInt());
+                String name = readString(in);
+                String state = readSymbol(in);
+                String notes = readString(in);
+                if (line != null) {
+                    line.name = name;
+                    line.state = state;
+                    line.notes = notes;
+                }
+            }
+            case DELETE_LINE -> {
+                int id = in.getInt();
+                replay.productionLines.remove(id);
+                replay.tasks.remove(id);
+            }
+            case PUT_TASK -> {
+                ProductionLine line = replay.productionLines.get(in.getInt());
+                ProductionLine.Task task = readTask(in);
+                if (line != null) replay.tasksOf(line).put(task.id, task);
+            }
+            case DELETE_TASK -> {
+                ProductionLine line = replay.productionLines.get(in.getInt());
+                int taskId = in.getInt();
+                if (line != null) replay.tasksOf(line).remove(taskId);
+            }
+            default -> throw new IOException("Unknown journal record type: " + op);
+        }
+    }
+
+    // ========== APPEND ==========
+
+    synchronized void putItem(Item item) throws IOException {
+        begin(PUT_ITEM);
+        writeItem(item);
+        append();
+    }
+
+    synchronized void deleteItem(int id) throws IOException {
+        begin(DELETE_ITEM);
+        fields.writeInt(id);
+        append();
+    }
+
+    synchronized void putProduct(Product product) throws IOException {
+        begin(PUT_PRODUCT);
+        fields.writeInt(product.id);
+        writeString(product.name);
+        fields.writeInt(product.requiredItems.size());
+        for (Product.RequiredItem requiredItem : product.requiredItems) {
+            writeString(requiredItem.item);
+            fields.writeInt(requiredItem.quantity);
+        }
+        append();
+    }
+
+    synchronized void deleteProduct(int id) throws IOException {
+        begin(DELETE_PRODUCT);
+        fields.writeInt(id);
+        append();
+    }
+
+    synchronized void putProductionLine(ProductionLine line) throws IOException {
+        begin(PUT_LINE);
+        fields.writeInt(line.id);
+        writeString(line.name);
+        writeString(line.state);
+        writeString(line.notes);
+        fields.writeInt(line.tasks.size());
+        for (ProductionLine.Task task : line.tasks) writeTask(task);
+        append();
+    }
+
+    synchronized void updateProductionLine(ProductionLine line) throws IOException {
+        begin(UPDATE_LINE);
+        fields.writeInt(line.id);
+        writeString(line.name);
+        writeString(line.state);
+        writeString(line.notes);
+        append();
+    }
+
+    synchronized void deleteProductionLine(int id) throws IOException {
+        begin(DELETE_LINE);
+        fields.writeInt(id);
+        append();
+    }
+
+    synchronized void putTask(int productionLineId, ProductionLine.Task task) throws IOException {
+        begin(PUT_TASK);
+        fields.writeInt(productionLineId);
+        writeTask(task);
+        append();
+    }
+
+    synchronized void deleteTask(int productionLineId, int taskId) throws IOException {
+        begin(DELETE_TASK);
+        fields.writeInt(productionLineId);
+        fields.writeInt(taskId);
+        append();
+    }
+
+    // ========== CHECKPOINT ==========
+
+    // Starts a new, empty live file. The records written so far stay in <name>.old until deleteRotated(),
+    // appended to whatever an earlier interrupted checkpoint left there.
+    synchronized void rotate() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+        if (Files.exists(path)) {
+            if (Files.exists(rotatedPath)) {
+                try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(rotatedPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    long position = 0;
+                    long length = in.size();
+                    while (position < length) position += in.transferTo(position, length - position, out);
+                    out.force(false);
+                }
+                Files.delete(path);
+            } else {
+                try {
+                    Files.move(path, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(path, rotatedPath);
+                }
+            }
+        }
+        open();
+    }
+
+    // Called once the checkpoint that followed rotate() is on disk
+    synchronized void deleteRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    synchronized void open() throws IOException {
+        if (channel != null) return;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        size = channel.size();
+        channel.position(size);
+        lastSync = System.currentTimeMillis();
+    }
+
+    synchronized void sync() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            lastSync = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            try {
+                channel.force(false);
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    private void begin(byte op) throws IOException {
+        record.reset();
+        record.write(new byte[HEADER_SIZE]); // length and checksum are filled in by append()
+        fields.writeByte(op);
+    }
+
+    private void append() throws IOException {
+        open();
+        ByteBuffer buffer = record.toBuffer();
+        int length = buffer.limit() - HEADER_SIZE;
+        crc.reset();
+        crc.update(buffer.array(), HEADER_SIZE, length);
+        buffer.putInt(0, length);
+        buffer.putInt(4, (int) crc.getValue());
+        while (buffer.hasRemaining()) channel.write(buffer);
+        size += buffer.limit();
+
+        if (sync == Inventory.JournalSync.ALWAYS ||
+                (sync == Inventory.JournalSync.PERIODIC && System.currentTimeMillis() - lastSync >= syncIntervalMillis)) {
+            sync();
+        }
+    }
+
+    private void writeItem(Item item) throws IOException {
+        fields.writeInt(item.id);
+        writeString(item.name);
+        writeString(item.category);
+        fields.writeDouble(item.price);
+        fields.writeInt(item.stock);
+        fields.writeInt(item.minimumStock);
+    }
+
+    private void writeTask(ProductionLine.Task task) throws IOException {
+        fields.writeInt(task.id);
+        writeString(task.productName);
+        fields.writeInt(task.quantity);
+        writeString(task.customer);
+        writeString(task.startingDate);
+        writeString(task.finishingDate);
+        writeString(task.state);
+        fields.writeDouble(task.progress);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            fields.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        fields.writeInt(bytes.length);
+        fields.write(bytes);
+    }
+
+    private static Item readItem(ByteBuffer in) {
+        Item item = new Item();
+        item.id = in.getInt();
+        item.name = readString(in);
+        item.category = readSymbol(in);
+        item.price = in.getDouble();
+        item.stock = in.getInt();
+        item.minimumStock = in.getInt();
+        return item;
+    }
+
+    private static Product readProduct(ByteBuffer in) {
+        Product product = new Product();
+        product.id = in.getInt();
+        product.name = readString(in);
+        int requiredCount = in.getInt();
+        for (int i = 0; i < requiredCount; i++) {
+            String item = readString(in);
+            product.requiredItems.add(new Product.RequiredItem(item, in.getInt()));
+        }
+        return product;
+    }
+
+    private static ProductionLine readLine(ByteBuffer in) {
+        ProductionLine line = new ProductionLine();
+        line.id = in.getInt();
+        line.name = readString(in);
+        line.state = readSymbol(in);
+        line.notes = readString(in);
+        int taskCount = in.getInt();
+        for (int i = 0; i < taskCount; i++) line.tasks.add(readTask(in));
+        return line;
+    }
+
+    private static ProductionLine.Task readTask(ByteBuffer in) {
+        ProductionLine.Task task = new ProductionLine.Task();
+        task.id = in.getInt();
+        task.productName = readString(in);
+        task.quantity = in.getInt();
+        task.customer = readString(in);
+        task.startingDate = readString(in);
+        task.finishingDate = readString(in);
+        task.state = readSymbol(in);
+        task.progress = in.getDouble();
+        return task;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    // Fields the JSON binding marks @JsonSymbol share the same canonical instances when replayed from here
+    private static String readSymbol(ByteBuffer in) {
+        return SymbolTable.SHARED.intern(readString(in));
+    }
+
+    private static <T> Map<Integer, T> byId(List<T> list, ToIntFunction<T> idOf) {
+        Map<Integer, T> map = new LinkedHashMap<>(Math.max(16, list.size() * 4 / 3 + 1));
+        for (T value : list) map.put(idOf.applyAsInt(value), value);
+        return map;
+    }
+
+    private static <T> void writeBack(Map<Integer, T> map, List<T> list) {
+        list.clear();
+        list.addAll(map.values());
+    }
+
+    // The lists being replayed into, keyed by id. Insertion order keeps list order: a put for an existing id
+    // replaces the element in place, a new id is appended, just as on the lists themselves.
+    private static class Replay {
+        final Map<Integer, Item> items;
+        final Map<Integer, Product> products;
+        final Map<Integer, ProductionLine> productionLines;
+        final Map<Integer, Map<Integer, ProductionLine.Task>> tasks = new HashMap<>(); // by line id, built on demand
+
+        Replay(List<Item> items, List<Product> products, List<ProductionLine> productionLines) {
+            this.items = byId(items, item -> item.id);
+            this.products = byId(products, product -> product.id);
+            this.productionLines = byId(productionLines, line -> line.id);
+        }
+
+        Map<Integer, ProductionLine.Task> tasksOf(ProductionLine line) {
+            return tasks.computeIfAbsent(line.id, id -> byId(line.tasks, task -> task.id));
+        }
+
+        void writeBack(List<Item> items, List<Product> products, List<ProductionLine> productionLines) {
+            InventoryJournal.writeBack(this.items, items);
+            InventoryJournal.writeBack(this.products, products);
+            InventoryJournal.writeBack(this.productionLines, productionLines);
+            for (ProductionLine line : this.productionLines.values()) {
+                Map<Integer, ProductionLine.Task> lineTasks = tasks.get(line.id);
+                if (lineTasks != null) InventoryJournal.writeBack(lineTasks, line.tasks);
+            }
+        }
+    }
+
+    // ByteArrayOutputStream whose contents can be handed to a channel without copying
+    private static class RecordBuffer extends ByteArrayOutputStream {
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
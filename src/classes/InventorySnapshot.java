@@ -0,0 +1,269 @@
+package classes;
+
+import mapper.SymbolTable;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Binary image of the whole inventory, written next to the JSON files and preferred at startup.
+//
+// Layout (big-endian, version 1):
+//   int magic "TPMS", int version
+//   long[6] lastModified/length of the items, products and production lines JSON files it was written from
+//   int stringCount, then per string: int byteLength + UTF-8 bytes
+//   items, products, production lines: int recordCount, then per record: int byteLength + fields
+// Strings inside records are int indexes into the string table (-1 for null). Records are length-prefixed so a
+// reader can skip fields appended by newer versions.
+class InventorySnapshot {
+    static final int MAGIC = 0x54504D53; // "TPMS"
+    static final int VERSION = 1;
+
+    static class Contents {
+        List<Item> items;
+        List<Product> products;
+        List<ProductionLine> productionLines;
+    }
+
+    // ========== WRITE ==========
+
+    static void write(File file, long[] sourceStamps, List<Item> items, List<Product> products,
+                      List<ProductionLine> productionLines) throws IOException {
+        StringTable strings = new StringTable();
+        for (Item item : items) {
+            strings.add(item.name);
+            strings.add(item.category);
+        }
+        for (Product product : products) {
+            strings.add(product.name);
+            for (Product.RequiredItem requiredItem : product.requiredItems) strings.add(requiredItem.item);
+        }
+        for (ProductionLine line : productionLines) {
+            strings.add(line.name);
+            strings.add(line.state);
+            strings.add(line.notes);
+            for (ProductionLine.Task task : line.tasks) {
+                strings.add(task.productName);
+                strings.add(task.customer);
+                strings.add(task.startingDate);
+                strings.add(task.finishingDate);
+                strings.add(task.state);
+            }
+        }
+
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (long stamp : sourceStamps) out.writeLong(stamp);
+
+            out.writeInt(strings.values.size());
+            for (String value : strings.values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            RecordBuffer record = new RecordBuffer();
+            DataOutputStream fields = new DataOutputStream(record);
+
+            out.writeInt(items.size());
+            for (Item item : items) {
+                record.reset();
+                fields.writeInt(item.id);
+                fields.writeInt(strings.indexOf(item.name));
+                fields.writeInt(strings.indexOf(item.category));
+                fields.writeDouble(item.price);
+                fields.writeInt(item.stock);
+                fields.writeInt(item.minimumStock);
+                record.writeRecord(out);
+            }
+
+            out.writeInt(products.size());
+            for (Product product : products) {
+                record.reset();
+                fields.writeInt(product.id);
+                fields.writeInt(strings.indexOf(product.name));
+                fields.writeInt(product.requiredItems.size());
+                for (Product.RequiredItem requiredItem : product.requiredItems) {
+                    fields.writeInt(strings.indexOf(requiredItem.item));
+                    fields.writeInt(requiredItem.quantity);
+                }
+                record.writeRecord(out);
+            }
+
+            out.writeInt(productionLines.size());
+            for (ProductionLine line : productionLines) {
+                record.reset();
+                fields.writeInt(line.id);
+                fields.writeInt(strings.indexOf(line.name));
+                fields.writeInt(strings.indexOf(line.state));
+                fields.writeInt(strings.indexOf(line.notes));
+                fields.writeInt(line.tasks.size());
+                for (ProductionLine.Task task : line.tasks) {
+                    fields.writeInt(task.id);
+                    fields.writeInt(strings.indexOf(task.productName));
+                    fields.writeInt(task.quantity);
+                    fields.writeInt(strings.indexOf(task.customer));
+                    fields.writeInt(strings.indexOf(task.startingDate));
+                    fields.writeInt(strings.indexOf(task.finishingDate));
+                    fields.writeInt(strings.indexOf(task.state));
+                    fields.writeDouble(task.progress);
+                }
+                record.writeRecord(out);
+            }
+
+            out.flush();
+            fileOut.getFD().sync();
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ========== READ ==========
+
+    // Returns null when the snapshot was written from different JSON files than the current ones
+    static Contents read(File file, long[] sourceStamps) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Snapshot too large: " + file.getPath());
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) break;
+            }
+            buffer.flip();
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Not an inventory snapshot: " + file.getPath());
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version: " + version);
+            for (long stamp : sourceStamps) {
+                if (buffer.getLong() != stamp) return null;
+            }
+
+            String[] strings = new String[buffer.getInt()];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getInt();
+                if (scratch.length < length) scratch = new byte[length];
+                buffer.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            Contents contents = new Contents();
+
+            int count = buffer.getInt();
+            contents.items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int end = recordEnd(buffer);
+                Item item = new Item();
+                item.id = buffer.getInt();
+                item.name = string(strings, buffer.getInt());
+                item.category = symbol(strings, buffer.getInt());
+                item.price = buffer.getDouble();
+                item.stock = buffer.getInt();
+                item.minimumStock = buffer.getInt();
+                buffer.position(end);
+                contents.items.add(item);
+            }
+
+            count = buffer.getInt();
+            contents.products = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int end = recordEnd(buffer);
+                Product product = new Product();
+                product.id = buffer.getInt();
+                product.name = string(strings, buffer.getInt());
+                int requiredCount = buffer.getInt();
+                for (int j = 0; j < requiredCount; j++) {
+                    String item = string(strings, buffer.getInt());
+                    product.requiredItems.add(new Product.RequiredItem(item, buffer.getInt()));
+                }
+                buffer.position(end);
+                contents.products.add(product);
+            }
+
+            count = buffer.getInt();
+            contents.productionLines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int end = recordEnd(buffer);
+                ProductionLine line = new ProductionLine();
+                line.id = buffer.getInt();
+                line.name = string(strings, buffer.getInt());
+                line.state = symbol(strings, buffer.getInt());
+                line.notes = string(strings, buffer.getInt());
+                int taskCount = buffer.getInt();
+                line.tasks = new ArrayList<>(taskCount);
+                for (int j = 0; j < taskCount; j++) {
+                    ProductionLine.Task task = new ProductionLine.Task();
+                    task.id = buffer.getInt();
+                    task.productName = string(strings, buffer.getInt());
+                    task.quantity = buffer.getInt();
+                    task.customer = string(strings, buffer.getInt());
+                    task.startingDate = string(strings, buffer.getInt());
+                    task.finishingDate = string(strings, buffer.getInt());
+                    task.state = symbol(strings, buffer.getInt());
+                    task.progress = buffer.getDouble();
+                    line.tasks.add(task);
+                }
+                buffer.position(end);
+                contents.productionLines.add(line);
+            }
+            return contents;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupted snapshot: " + file.getPath(), e);
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    private static int recordEnd(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        return buffer.position() + length;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    // Fields the JSON binding marks @JsonSymbol share the same canonical instances when loaded from here
+    private static String symbol(String[] strings, int index) {
+        return SymbolTable.SHARED.intern(string(strings, index));
+    }
+
+    private static class StringTable {
+        final Map<String, Integer> indexes = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+
+        void add(String value) {
+            if (value != null && !indexes.containsKey(value)) {
+                indexes.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        int indexOf(String value) {
+            return value == null ? -1 : indexes.get(value);
+        }
+    }
+
+    // ByteArrayOutputStream that writes itself as one length-prefixed record
+    private static class RecordBuffer extends ByteArrayOutputStream {
+        void writeRecord(DataOutputStream out) throws IOException {
+            out.writeInt(count);
+            out.write(buf, 0, count);
+        }
+    }
+}
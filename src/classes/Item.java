@@ -1,8 +1,13 @@
 package classes;
 
+import mapper.JsonSerializable;
+import mapper.JsonSymbol;
+
+@JsonSerializable
 public class Item {
     public int id;
     public String name;
+    @JsonSymbol
     public String category;
     public double price;
     public int stock;
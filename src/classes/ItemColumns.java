@@ -0,0 +1,214 @@
+package classes;
+
+import classes.index.IntHashIndex;
+import classes.index.RoaringBitmap;
+import mapper.SymbolTable;
+
+import java.util.Arrays;
+
+// Columnar copy of the items' numeric fields: one dense slot per item in parallel arrays, with categories
+// encoded as their SymbolTable codes. Threshold scans then walk a few primitive arrays front to back instead of chasing
+// Item objects across the heap, in loops simple enough for the JIT to unroll and vectorize.
+// InventoryIndexes keeps it in step with the item list; removal moves the last slot into the hole. Not thread-safe.
+class ItemColumns {
+    private static final int MIN_CAPACITY = 16;
+
+    private int size;
+    private int[] ids = new int[MIN_CAPACITY];
+    private int[] stock = new int[MIN_CAPACITY];
+    private int[] minimumStock = new int[MIN_CAPACITY];
+    private double[] price = new double[MIN_CAPACITY];
+    private int[] category = new int[MIN_CAPACITY]; // symbol code of the lower-case category, -1 for none
+    private int[] hits = new int[MIN_CAPACITY]; // scratch for slot numbers matched by a scan
+
+    private final IntHashIndex<Integer> slotsById = new IntHashIndex<>();
+
+    int size() {
+        return size;
+    }
+
+    // ========== SCANS ==========
+
+    // Range scans take query bounds: null for an open end, exclusive unless the flag says inclusive
+
+    RoaringBitmap stockIn(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        int[] bounds = intBounds(lower, lowerInclusive, upper, upperInclusive);
+        return bounds == null ? new RoaringBitmap() : stockBetween(bounds[0], bounds[1]);
+    }
+
+    RoaringBitmap minimumStockIn(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        int[] bounds = intBounds(lower, lowerInclusive, upper, upperInclusive);
+        return bounds == null ? new RoaringBitmap() : minimumStockBetween(bounds[0], bounds[1]);
+    }
+
+    RoaringBitmap priceIn(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        return priceBetween(lower == null ? Double.NEGATIVE_INFINITY : (Double) lower, lower == null || lowerInclusive,
+                upper == null ? Double.POSITIVE_INFINITY : (Double) upper, upper == null || upperInclusive);
+    }
+
+    // Ids of the items whose stock is within [min, max]
+    RoaringBitmap stockBetween(int min, int max) {
+        int[] stock = this.stock;
+        int[] hits = this.hits;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int s = stock[i];
+            hits[n] = i;
+            n += (s >= min & s <= max) ? 1 : 0;
+        }
+        return idsOf(n);
+    }
+
+    RoaringBitmap minimumStockBetween(int min, int max) {
+        int[] minimumStock = this.minimumStock;
+        int[] hits = this.hits;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int s = minimumStock[i];
+            hits[n] = i;
+            n += (s >= min & s <= max) ? 1 : 0;
+        }
+        return idsOf(n);
+    }
+
+    // Ids of the items whose price is within the range; inclusive flags pick <= over <
+    RoaringBitmap priceBetween(double min, boolean minInclusive, double max, boolean maxInclusive) {
+        double[] price = this.price;
+        int[] hits = this.hits;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            double p = price[i];
+            boolean above = minInclusive ? p >= min : p > min;
+            boolean below = maxInclusive ? p <= max : p < max;
+            hits[n] = i;
+            n += (above & below) ? 1 : 0;
+        }
+        return idsOf(n);
+    }
+
+    // Same rule as Item.getAvailability(): out of stock, under minimum stock, or available
+    RoaringBitmap withAvailability(String availability) {
+        int[] stock = this.stock;
+        int[] minimumStock = this.minimumStock;
+        int[] hits = this.hits;
+        int n = 0;
+        switch (availability) {
+            case "out of stock" -> {
+                for (int i = 0; i < size; i++) {
+                    hits[n] = i;
+                    n += stock[i] == 0 ? 1 : 0;
+                }
+            }
+            case "under minimum stock" -> {
+                for (int i = 0; i < size; i++) {
+                    hits[n] = i;
+                    n += (stock[i] != 0 & stock[i] <= minimumStock[i]) ? 1 : 0;
+                }
+            }
+            case "available" -> {
+                for (int i = 0; i < size; i++) {
+                    hits[n] = i;
+                    n += (stock[i] != 0 & stock[i] > minimumStock[i]) ? 1 : 0;
+                }
+            }
+            default -> {}
+        }
+        return idsOf(n);
+    }
+
+    // Items that are not "available": at or under their minimum stock, or out of stock
+    RoaringBitmap belowMinimum() {
+        int[] stock = this.stock;
+        int[] minimumStock = this.minimumStock;
+        int[] hits = this.hits;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            hits[n] = i;
+            n += (stock[i] == 0 | stock[i] <= minimumStock[i]) ? 1 : 0;
+        }
+        return idsOf(n);
+    }
+
+    // Sum of price * stock; for items in one category when category is not null (compared ignoring case)
+    double stockValue(String category) {
+        int code = category == null ? -1 : SymbolTable.SHARED.codeIfPresent(InventoryIndexes.normalize(category));
+        if (category != null && code < 0) return 0;
+        double[] price = this.price;
+        int[] stock = this.stock;
+        int[] categories = this.category;
+        double sum = 0;
+        if (category == null) {
+            for (int i = 0; i < size; i++) sum += price[i] * stock[i];
+        } else {
+            for (int i = 0; i < size; i++) sum += categories[i] == code ? price[i] * stock[i] : 0;
+        }
+        return sum;
+    }
+
+    // ========== MAINTENANCE ==========
+
+    void add(Item item) {
+        remove(item.id);
+        if (size == ids.length) grow();
+        int slot = size++;
+        set(slot, item);
+        slotsById.put(item.id, slot);
+    }
+
+    void remove(int id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null) return;
+
+        int last = --size;
+        if (slot != last) {
+            ids[slot] = ids[last];
+            stock[slot] = stock[last];
+            minimumStock[slot] = minimumStock[last];
+            price[slot] = price[last];
+            category[slot] = category[last];
+            slotsById.put(ids[slot], slot);
+        }
+    }
+
+    void clear() {
+        size = 0;
+        slotsById.clear();
+    }
+
+    // ========== PRIVATE HELPERS ==========
+
+    private void set(int slot, Item item) {
+        ids[slot] = item.id;
+        stock[slot] = item.stock;
+        minimumStock[slot] = item.minimumStock;
+        price[slot] = item.price;
+        category[slot] = categoryCode(item.category);
+    }
+
+    private static int categoryCode(String value) {
+        return value == null ? -1 : SymbolTable.SHARED.code(InventoryIndexes.key(value));
+    }
+
+    // Inclusive [min, max], or null when the bounds leave no int between them
+    private static int[] intBounds(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        long min = lower == null ? Integer.MIN_VALUE : (Integer) lower + (lowerInclusive ? 0L : 1L);
+        long max = upper == null ? Integer.MAX_VALUE : (Integer) upper - (upperInclusive ? 0L : 1L);
+        return min > max ? null : new int[]{(int) min, (int) max};
+    }
+
+    private RoaringBitmap idsOf(int hitCount) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (int i = 0; i < hitCount; i++) result.add(ids[hits[i]]);
+        return result;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        stock = Arrays.copyOf(stock, capacity);
+        minimumStock = Arrays.copyOf(minimumStock, capacity);
+        price = Arrays.copyOf(price, capacity);
+        category = Arrays.copyOf(category, capacity);
+        hits = new int[capacity];
+    }
+}
@@ -0,0 +1,18 @@
+package classes;
+
+import java.util.List;
+
+// One page of a Query. nextCursor continues the same query where this page stopped; it is null on the last page.
+public final class Page<T> {
+    public final List<T> items;
+    public final String nextCursor;
+
+    Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
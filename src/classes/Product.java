@@ -1,8 +1,11 @@
 package classes;
 
+import mapper.JsonSerializable;
+
 import java.util.ArrayList;
 import java.util.List;
 
+@JsonSerializable
 public class Product {
     public int id;
     public String name;
@@ -18,6 +21,7 @@ public class Product {
         this.requiredItems = new ArrayList<>();
     }
 
+    @JsonSerializable
     public static class RequiredItem {
         public String item;
         public int quantity;
@@ -1,11 +1,17 @@
 package classes;
 
+import mapper.JsonSerializable;
+import mapper.JsonSymbol;
+
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+@JsonSerializable
 public class ProductionLine {
     public int id;
     public String name;
+    @JsonSymbol
     public String state; // active - inactive - maintenance
     public String notes;
     public List<Task> tasks = new ArrayList<>();
@@ -25,15 +31,20 @@ public class ProductionLine {
         state = "active";
     }
 
+    @JsonSerializable
     public static class Task {
         public int id;
         public String productName;
         public int quantity;
         public String customer;
-        public String startingDate;
+        public String startingDate; // dd/MM/yyyy
         public String finishingDate;
+        @JsonSymbol
         public String state; // ongoing - completed - canceled
         public double progress;
+        // The dates as epoch days, parsed when the inventory files the task; the strings are what gets saved
+        transient int startingDay = TaskSchedule.NO_DATE;
+        transient int finishingDay = TaskSchedule.NO_DATE;
 
         public  Task(){}
 
@@ -47,6 +58,15 @@ public class ProductionLine {
             this.state = state;
             this.progress = progress;
         }
+
+        // Null when the date is missing or unreadable, or the task is not in an inventory
+        public LocalDate getStartingDate() {
+            return TaskSchedule.toDate(startingDay);
+        }
+
+        public LocalDate getFinishingDate() {
+            return TaskSchedule.toDate(finishingDay);
+        }
     }
 
 }
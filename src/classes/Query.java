@@ -0,0 +1,401 @@
+package classes;
+
+import classes.index.RoaringBitmap;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Fluent query over one kind of inventory entity, e.g.
+//   inventory.tasks().where(Attributes.Tasks.STATE.eq("ongoing")).and(Attributes.Tasks.CUSTOMER.eq("Acme"))
+//           .orderBy(Attributes.Tasks.FINISHING_DATE).limit(50).list()
+// The planner answers every condition it can from an index, intersects those id sets smallest first, and tests
+// the remaining conditions only on the surviving candidates. With no usable index it scans. explain() shows
+// the plan. Results are ordered by id unless orderBy says otherwise.
+// Results are computed under the collection's read lock; the entities they return are the live ones.
+public final class Query<T> {
+    private final Inventory inventory;
+    private final QuerySource<T> source;
+    private final List<Condition<T>> conditions = new ArrayList<>();
+    private Attribute<T, ?> orderBy;
+    private boolean descending;
+    private int limit = Integer.MAX_VALUE;
+
+    Query(Inventory inventory, QuerySource<T> source) {
+        this.inventory = inventory;
+        this.source = source;
+    }
+
+    // ========== BUILDING ==========
+
+    public Query<T> where(Condition<T> condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    public Query<T> and(Condition<T> condition) {
+        return where(condition);
+    }
+
+    public Query<T> orderBy(Attribute<T, ?> attribute) {
+        this.orderBy = attribute;
+        this.descending = false;
+        return this;
+    }
+
+    public Query<T> orderByDescending(Attribute<T, ?> attribute) {
+        this.orderBy = attribute;
+        this.descending = true;
+        return this;
+    }
+
+    public Query<T> limit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("Query limit cannot be negative: " + limit);
+        this.limit = limit;
+        return this;
+    }
+
+    // ========== RESULTS ==========
+
+    public List<T> list() {
+        return source.read(this::listRows);
+    }
+
+    private List<T> listRows() {
+        Plan<T> plan = plan();
+        List<T> result = new ArrayList<>();
+        if (limit == 0) return result;
+
+        // ids come out of the bitmaps in order, so an id-ordered query walks them and stops at the limit
+        Comparator<T> order = order();
+        if (order == null) {
+            idsOf(plan).forEachFrom(0, id -> collect(plan, id, result, limit));
+            return result;
+        }
+
+        Top<T> top = new Top<>(order, limit);
+        forEachMatch(plan, top::offer);
+        return top.toList();
+    }
+
+    public T first() {
+        int previousLimit = limit;
+        limit = 1;
+        try {
+            List<T> result = list();
+            return result.isEmpty() ? null : result.get(0);
+        } finally {
+            limit = previousLimit;
+        }
+    }
+
+    // Ignores orderBy and limit; answered without touching entities when every condition used an index
+    public int count() {
+        return source.read(this::countRows);
+    }
+
+    private int countRows() {
+        Plan<T> plan = plan();
+        if (plan.candidates != null && plan.residual.isEmpty()) return plan.candidates.cardinality();
+
+        int[] count = {0};
+        forEachMatch(plan, entity -> count[0]++);
+        return count[0];
+    }
+
+    // ========== PAGING ==========
+
+    // One page of up to `size` results after the cursor (null for the first page); limit is ignored.
+    // Pages continue from the last row's (orderBy value, id) rather than an offset, so rows inserted or deleted
+    // between calls never shift or repeat later rows. Id order, and ascending order on an attribute whose index can
+    // list its keys, only visit the rows they return; other orders scan but hold at most one page.
+    public Page<T> page(int size, String cursor) {
+        if (size <= 0) throw new IllegalArgumentException("Page size must be positive: " + size);
+        Position after = cursor == null ? null : Position.decode(cursor, orderKey());
+        return source.read(() -> pageRows(size, after));
+    }
+
+    public Page<T> page(int size) {
+        return page(size, null);
+    }
+
+    private Page<T> pageRows(int size, Position after) {
+        Plan<T> plan = plan();
+        int wanted = size == Integer.MAX_VALUE ? size : size + 1; // one extra row tells whether another page exists
+        List<T> rows = new ArrayList<>(Math.min(wanted, 1024));
+
+        Comparator<T> order = order();
+        Collection<?> keys = order == null || descending ? null : source.keys(orderBy);
+        if (order == null) {
+            if (after == null || after.id != Integer.MAX_VALUE) {
+                idsOf(plan).forEachFrom(after == null ? 0 : after.id + 1, id -> collect(plan, id, rows, wanted));
+            }
+        } else if (keys != null) {
+            pageByKeys(plan, keys, after, rows, wanted);
+        } else {
+            Top<T> top = new Top<>(order, wanted);
+            forEachMatch(plan, entity -> {
+                if (after == null || isAfter(entity, after)) top.offer(entity);
+            });
+            rows.addAll(top.toList());
+        }
+
+        if (rows.size() <= size) return new Page<>(rows, null);
+        rows.remove(size);
+        return new Page<>(rows, positionOf(rows.get(size - 1)).encode(orderKey()));
+    }
+
+    // Walks the order attribute's index one key at a time in value order; entities with no value are in no
+    // bitmap and come last, found by checking the remaining ids
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void pageByKeys(Plan<T> plan, Collection<?> keys, Position after, List<T> rows, int wanted) {
+        boolean inNullTail = after != null && after.value == null;
+        if (!inNullTail) {
+            List<Comparable> sorted = new ArrayList<>((Collection<Comparable>) keys);
+            Collections.sort(sorted);
+            for (Comparable key : sorted) {
+                int c = after == null ? 1 : key.compareTo(after.value);
+                if (c < 0) continue;
+                if (c == 0 && after.id == Integer.MAX_VALUE) continue;
+
+                RoaringBitmap ids = source.lookup(orderBy, key);
+                if (plan.candidates != null) ids = RoaringBitmap.and(plan.candidates, ids);
+                ids.forEachFrom(c == 0 ? after.id + 1 : 0, id -> collect(plan, id, rows, wanted));
+                if (rows.size() >= wanted) return;
+            }
+        }
+
+        int from = inNullTail ? after.id + 1 : 0;
+        if (inNullTail && after.id == Integer.MAX_VALUE) return;
+        idsOf(plan).forEachFrom(from, id -> {
+            T entity = source.byId(id);
+            if (entity != null && orderBy.valueOf(inventory, entity) == null && plan.matches(inventory, entity)) {
+                rows.add(entity);
+            }
+            return rows.size() < wanted;
+        });
+    }
+
+    // ========== EXECUTION ==========
+
+    private RoaringBitmap idsOf(Plan<T> plan) {
+        return plan.candidates != null ? plan.candidates : source.allIds();
+    }
+
+    // Adds the entity when it passes the remaining conditions; false once `wanted` rows are collected
+    private boolean collect(Plan<T> plan, int id, List<T> rows, int wanted) {
+        T entity = source.byId(id);
+        if (entity != null && plan.matches(inventory, entity)) rows.add(entity);
+        return rows.size() < wanted;
+    }
+
+    private void forEachMatch(Plan<T> plan, Consumer<T> action) {
+        if (plan.candidates != null) {
+            plan.candidates.forEach(id -> {
+                T entity = source.byId(id);
+                if (entity != null && plan.matches(inventory, entity)) action.accept(entity);
+            });
+        } else {
+            source.forEach(entity -> {
+                if (plan.matches(inventory, entity)) action.accept(entity);
+            });
+        }
+    }
+
+    // Human-readable plan, one step per line
+    public String explain() {
+        return source.read(this::describePlan);
+    }
+
+    private String describePlan() {
+        Plan<T> plan = plan();
+        StringBuilder out = new StringBuilder("query ").append(source.name).append('\n');
+        for (String step : plan.steps) out.append("  ").append(step).append('\n');
+        if (plan.candidates == null) {
+            out.append("  scan ").append(source.name).append(order() == null ? " in id order" : "")
+                    .append(" (").append(source.size()).append(" rows)\n");
+        }
+        for (Condition<T> condition : plan.residual) out.append("  filter ").append(condition).append('\n');
+        if (orderBy != null) out.append("  order by ").append(orderBy).append(descending ? " desc" : "").append('\n');
+        if (limit != Integer.MAX_VALUE) out.append("  limit ").append(limit).append('\n');
+        return out.toString();
+    }
+
+    // ========== PLANNING ==========
+
+    private static final class Plan<T> {
+        RoaringBitmap candidates; // null means scan
+        final List<Condition<T>> residual = new ArrayList<>();
+        final List<String> steps = new ArrayList<>();
+
+        boolean matches(Inventory inventory, T entity) {
+            for (Condition<T> condition : residual) {
+                if (!condition.test(inventory, entity)) return false;
+            }
+            return true;
+        }
+    }
+
+    private Plan<T> plan() {
+        Plan<T> plan = new Plan<>();
+        List<Map.Entry<Condition<T>, RoaringBitmap>> indexed = new ArrayList<>();
+        List<Map.Entry<Condition<T>, RoaringBitmap>> excluded = new ArrayList<>();
+
+        for (Condition<T> condition : conditions) {
+            if (condition instanceof Condition.Not<T> not) {
+                RoaringBitmap ids = not.negated.lookup(source);
+                if (ids != null) {
+                    excluded.add(Map.entry(condition, ids));
+                    continue;
+                }
+            }
+            RoaringBitmap ids = condition.lookup(source);
+            if (ids == null) {
+                plan.residual.add(condition);
+            } else {
+                indexed.add(Map.entry(condition, ids));
+            }
+        }
+
+        indexed.sort(Comparator.comparingInt(entry -> entry.getValue().cardinality()));
+        for (Map.Entry<Condition<T>, RoaringBitmap> entry : indexed) {
+            int matches = entry.getValue().cardinality();
+            plan.candidates = plan.candidates == null
+                    ? entry.getValue()
+                    : RoaringBitmap.and(plan.candidates, entry.getValue());
+            plan.steps.add("index " + entry.getKey() + " -> " + matches + " ids"
+                    + (plan.candidates.cardinality() == matches ? "" : ", " + plan.candidates.cardinality() + " left"));
+        }
+
+        // a negated index lookup can only narrow candidates that something else produced
+        for (Map.Entry<Condition<T>, RoaringBitmap> entry : excluded) {
+            if (plan.candidates == null) {
+                plan.residual.add(entry.getKey());
+                continue;
+            }
+            plan.candidates = RoaringBitmap.andNot(plan.candidates, entry.getValue());
+            plan.steps.add("exclude " + ((Condition.Not<T>) entry.getKey()).negated + " -> "
+                    + plan.candidates.cardinality() + " left");
+        }
+        return plan;
+    }
+
+    // Null when results are in id order
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparator<T> order() {
+        if (orderBy == null || (orderBy == source.id && !descending)) return null;
+        Comparator<T> comparator = ((Attribute) orderBy).comparator(inventory);
+        if (descending) comparator = comparator.reversed();
+        return comparator.thenComparing(source.id.comparator(inventory)); // ties keep id order
+    }
+
+    // ========== CURSORS ==========
+
+    private String orderKey() {
+        return order() == null ? "id" : orderBy.name() + (descending ? " desc" : "");
+    }
+
+    private Position positionOf(T entity) {
+        Object value = order() == null ? null : orderBy.valueOf(inventory, entity);
+        return new Position(value, source.id.valueOf(inventory, entity));
+    }
+
+    // True when the entity sorts after the position, by the same rules as order()
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private boolean isAfter(T entity, Position after) {
+        Comparable value = orderBy.valueOf(inventory, entity);
+        int c;
+        if (value == null || after.value == null) {
+            c = value == null ? (after.value == null ? 0 : 1) : -1; // nulls last
+        } else {
+            c = value.compareTo(after.value);
+        }
+        if (descending) c = -c;
+        return c != 0 ? c > 0 : source.id.valueOf(inventory, entity) > after.id;
+    }
+
+    // Where a page ended: the last row's order value and id. Encoded with the ordering it belongs to, so a cursor
+    // cannot be replayed against a query ordered differently.
+    private static final class Position {
+        final Object value;
+        final int id;
+
+        Position(Object value, int id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        String encode(String orderKey) {
+            String typed;
+            if (value == null) {
+                typed = "n";
+            } else if (value instanceof Integer) {
+                typed = "i" + value;
+            } else if (value instanceof Double) {
+                typed = "d" + value;
+            } else if (value instanceof LocalDate) {
+                typed = "t" + value;
+            } else {
+                typed = "s" + value;
+            }
+            String raw = orderKey + "\n" + id + "\n" + typed;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Position decode(String cursor, String orderKey) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\n", 3);
+                if (parts.length != 3 || parts[2].isEmpty()) throw new IllegalArgumentException("Malformed cursor");
+                if (!parts[0].equals(orderKey)) {
+                    throw new IllegalArgumentException("Cursor was made for order by " + parts[0] + ", not " + orderKey);
+                }
+                int id = Integer.parseInt(parts[1]);
+                String value = parts[2].substring(1);
+                return switch (parts[2].charAt(0)) {
+                    case 'n' -> new Position(null, id);
+                    case 'i' -> new Position(Integer.valueOf(value), id);
+                    case 'd' -> new Position(Double.valueOf(value), id);
+                    case 't' -> new Position(LocalDate.parse(value), id);
+                    case 's' -> new Position(value, id);
+                    default -> throw new IllegalArgumentException("Malformed cursor");
+                };
+            } catch (IllegalArgumentException | DateTimeException e) { // also bad Base64 and NumberFormatException
+                throw new IllegalArgumentException("Invalid cursor: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // Keeps the first `limit` entities by the comparator; a bounded heap when the limit is small
+    private static final class Top<T> {
+        private final Comparator<T> comparator;
+        private final int limit;
+        private final PriorityQueue<T> heap;
+        private final List<T> all;
+
+        Top(Comparator<T> comparator, int limit) {
+            this.comparator = comparator;
+            this.limit = limit;
+            boolean bounded = limit < 1024;
+            this.heap = bounded ? new PriorityQueue<>(limit + 1, comparator.reversed()) : null;
+            this.all = bounded ? null : new ArrayList<>();
+        }
+
+        void offer(T entity) {
+            if (heap == null) {
+                all.add(entity);
+            } else if (limit > 0) {
+                heap.add(entity);
+                if (heap.size() > limit) heap.poll();
+            }
+        }
+
+        List<T> toList() {
+            List<T> result = heap == null ? all : new ArrayList<>(heap);
+            result.sort(comparator);
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package classes;
+
+import classes.index.RoaringBitmap;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// What the query planner knows about one kind of entity: how to scan it, how to fetch it by id, and which
+// attributes have an index that turns an exact value into the ids that have it. Everything it reads is guarded by
+// the lock of the collection it belongs to, which queries take through read().
+class QuerySource<T> {
+    interface Scan<T> {
+        void forEach(Consumer<? super T> action);
+    }
+
+    // Ids whose value lies in a range; a null bound is open
+    interface RangeLookup {
+        RoaringBitmap lookup(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive);
+    }
+
+    final String name;
+    final Attribute<T, Integer> id;
+    private final CollectionLock lock;
+    private final IntFunction<T> byId;
+    private final Scan<T> scan;
+    private final Supplier<RoaringBitmap> allIds;
+    private final Map<Attribute<T, ?>, Function<Object, RoaringBitmap>> indexes = new HashMap<>();
+    private final Map<Attribute<T, ?>, Supplier<? extends Collection<?>>> indexKeys = new HashMap<>();
+    private final Map<Attribute<T, ?>, RangeLookup> rangeIndexes = new HashMap<>();
+
+    QuerySource(String name, Attribute<T, Integer> id, CollectionLock lock, IntFunction<T> byId, Scan<T> scan,
+                Supplier<RoaringBitmap> allIds) {
+        this.name = name;
+        this.id = id;
+        this.lock = lock;
+        this.byId = byId;
+        this.scan = scan;
+        this.allIds = allIds;
+        index(id, value -> allIds.get().contains((Integer) value)
+                ? RoaringBitmap.of((Integer) value)
+                : new RoaringBitmap());
+    }
+
+    // The lookup receives values already normalized by the attribute
+    QuerySource<T> index(Attribute<T, ?> attribute, Function<Object, RoaringBitmap> lookup) {
+        indexes.put(attribute, lookup);
+        return this;
+    }
+
+    // An index whose keys can be listed, so pages ordered by the attribute can walk it key by key
+    QuerySource<T> index(Attribute<T, ?> attribute, Function<Object, RoaringBitmap> lookup,
+                         Supplier<? extends Collection<?>> keys) {
+        indexKeys.put(attribute, keys);
+        return index(attribute, lookup);
+    }
+
+    QuerySource<T> rangeIndex(Attribute<T, ?> attribute, RangeLookup lookup) {
+        rangeIndexes.put(attribute, lookup);
+        return this;
+    }
+
+    <R> R read(Supplier<R> read) {
+        return lock.read(read);
+    }
+
+    // Ids with exactly this value, or null when the attribute is not indexed (nulls are never indexed)
+    RoaringBitmap lookup(Attribute<T, ?> attribute, Object value) {
+        Function<Object, RoaringBitmap> lookup = indexes.get(attribute);
+        return lookup == null || value == null ? null : lookup.apply(value);
+    }
+
+    // Ids whose value is in the range, or null when the attribute has no range index
+    RoaringBitmap lookupRange(Attribute<T, ?> attribute, Object lower, boolean lowerInclusive, Object upper,
+                              boolean upperInclusive) {
+        RangeLookup lookup = rangeIndexes.get(attribute);
+        return lookup == null ? null : lookup.lookup(lower, lowerInclusive, upper, upperInclusive);
+    }
+
+    // Distinct indexed values of the attribute, or null when its index cannot list them
+    Collection<?> keys(Attribute<T, ?> attribute) {
+        Supplier<? extends Collection<?>> keys = indexKeys.get(attribute);
+        return keys == null ? null : keys.get();
+    }
+
+    // Every id, in order; the live set, which callers must not modify
+    RoaringBitmap allIds() {
+        return allIds.get();
+    }
+
+    T byId(int id) {
+        return byId.apply(id);
+    }
+
+    void forEach(Consumer<? super T> action) {
+        scan.forEach(action);
+    }
+
+    int size() {
+        return allIds.get().cardinality();
+    }
+}
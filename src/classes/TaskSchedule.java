@@ -0,0 +1,199 @@
+package classes;
+
+import classes.index.IntHashIndex;
+import classes.index.IntervalTree;
+import classes.index.RoaringBitmap;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Task dates as epoch days, with every task's [startingDay, finishingDay] in an interval tree across all lines and
+// in one for its production line. InventoryIndexes keeps it in step with the tasks; the days each task was filed
+// under are remembered by id, so a task edited in place is still removed from where it was.
+// A task with only one date is not an interval and is kept aside, where range lookups on that date still find it.
+// Between startBulk() and finishBulk() intervals are only collected, and the trees are then built in one pass.
+// Not thread-safe.
+class TaskSchedule {
+    static final int NO_DATE = Integer.MIN_VALUE; // never a valid day, so open ranges start above it
+
+    private record Scheduled(int taskId, int lineId, int startingDay, int finishingDay) {}
+
+    private final IntervalTree all = new IntervalTree();
+    private final Map<Integer, IntervalTree> byLine = new HashMap<>();
+    private final IntHashIndex<Scheduled> scheduled = new IntHashIndex<>();
+    private final RoaringBitmap partlyDated = new RoaringBitmap();
+    private List<Scheduled> pending; // intervals waiting for finishBulk(), null outside a bulk load
+
+    // ========== QUERIES ==========
+
+    // Tasks whose days share at least one day with [from, to]
+    RoaringBitmap overlapping(int from, int to) {
+        return all.overlapping(from, to);
+    }
+
+    RoaringBitmap overlapping(int productionLineId, int from, int to) {
+        IntervalTree line = byLine.get(productionLineId);
+        return line == null ? new RoaringBitmap() : line.overlapping(from, to);
+    }
+
+    // Range lookups for the date attributes: LocalDate bounds, null for an open end
+
+    RoaringBitmap startingIn(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        int[] bounds = dayBounds(lower, lowerInclusive, upper, upperInclusive);
+        if (bounds == null) return new RoaringBitmap();
+        RoaringBitmap ids = all.startingBetween(bounds[0], bounds[1]);
+        partlyDated.forEach(id -> {
+            int day = scheduled.get(id).startingDay();
+            if (day >= bounds[0] && day <= bounds[1]) ids.add(id);
+        });
+        return ids;
+    }
+
+    RoaringBitmap finishingIn(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        int[] bounds = dayBounds(lower, lowerInclusive, upper, upperInclusive);
+        if (bounds == null) return new RoaringBitmap();
+        RoaringBitmap ids = all.endingBetween(bounds[0], bounds[1]);
+        partlyDated.forEach(id -> {
+            int day = scheduled.get(id).finishingDay();
+            if (day >= bounds[0] && day <= bounds[1]) ids.add(id);
+        });
+        return ids;
+    }
+
+    // ========== MAINTENANCE ==========
+
+    // Parses the task's dates into its day fields and files it
+    void add(int productionLineId, ProductionLine.Task task) {
+        remove(task.id);
+        task.startingDay = epochDay(task.startingDate);
+        task.finishingDay = epochDay(task.finishingDate);
+        if (task.startingDay == NO_DATE && task.finishingDay == NO_DATE) return;
+
+        Scheduled filed = new Scheduled(task.id, productionLineId, task.startingDay, task.finishingDay);
+        scheduled.put(task.id, filed);
+        if (task.startingDay == NO_DATE || task.finishingDay == NO_DATE) {
+            partlyDated.add(task.id);
+            return;
+        }
+        if (pending != null) {
+            pending.add(filed);
+            return;
+        }
+        all.add(task.id, task.startingDay, task.finishingDay);
+        byLine.computeIfAbsent(productionLineId, id -> new IntervalTree())
+                .add(task.id, task.startingDay, task.finishingDay);
+    }
+
+    void remove(int taskId) {
+        Scheduled filed = scheduled.remove(taskId);
+        if (filed == null) return;
+        if (filed.startingDay() == NO_DATE || filed.finishingDay() == NO_DATE) {
+            partlyDated.remove(taskId);
+            return;
+        }
+        if (pending != null) return; // finishBulk() skips it
+        all.remove(taskId, filed.startingDay());
+        IntervalTree line = byLine.get(filed.lineId());
+        line.remove(taskId, filed.startingDay());
+        if (line.isEmpty()) byLine.remove(filed.lineId());
+    }
+
+    void clear() {
+        all.clear();
+        byLine.clear();
+        scheduled.clear();
+        partlyDated.clear();
+        pending = null;
+    }
+
+    // Clears the schedule and collects the following adds until finishBulk()
+    void startBulk() {
+        clear();
+        pending = new ArrayList<>();
+    }
+
+    void finishBulk() {
+        List<Scheduled> intervals = pending;
+        pending = null;
+        if (intervals == null) return;
+        intervals.removeIf(filed -> scheduled.get(filed.taskId()) != filed); // removed or re-added since
+
+        Map<Integer, List<Scheduled>> lines = new HashMap<>();
+        for (Scheduled filed : intervals) {
+            lines.computeIfAbsent(filed.lineId(), id -> new ArrayList<>()).add(filed);
+        }
+        addAll(all, intervals);
+        lines.forEach((lineId, lineIntervals) -> addAll(byLine.computeIfAbsent(lineId, id -> new IntervalTree()),
+                lineIntervals));
+    }
+
+    // ========== DATES ==========
+
+    // Epoch day of a dd/MM/yyyy date (the form the app writes; d/M/yyyy and ISO yyyy-MM-dd are also read),
+    // or NO_DATE when the text is missing or not a date
+    static int epochDay(String date) {
+        if (date == null) return NO_DATE;
+        int[] fields = new int[3];
+        int field = 0;
+        int digits = 0;
+        int firstDigits = 0;
+        for (int i = 0, length = date.length(); i < length; i++) {
+            char c = date.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 4) return NO_DATE;
+                fields[field] = fields[field] * 10 + (c - '0');
+            } else if ((c == '/' || c == '-') && digits > 0 && field < 2) {
+                if (field == 0) firstDigits = digits;
+                field++;
+                digits = 0;
+            } else {
+                return NO_DATE;
+            }
+        }
+        if (field != 2 || digits == 0) return NO_DATE;
+        try {
+            LocalDate parsed = firstDigits == 4
+                    ? LocalDate.of(fields[0], fields[1], fields[2])
+                    : LocalDate.of(fields[2], fields[1], fields[0]);
+            return (int) parsed.toEpochDay();
+        } catch (DateTimeException e) {
+            return NO_DATE;
+        }
+    }
+
+    static int epochDay(LocalDate date) {
+        long day = date.toEpochDay();
+        return (int) Math.max(NO_DATE + 1L, Math.min(Integer.MAX_VALUE, day));
+    }
+
+    static LocalDate toDate(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static void addAll(IntervalTree tree, List<Scheduled> intervals) {
+        int count = intervals.size();
+        int[] ids = new int[count];
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        for (int i = 0; i < count; i++) {
+            Scheduled filed = intervals.get(i);
+            ids[i] = filed.taskId();
+            starts[i] = filed.startingDay();
+            ends[i] = filed.finishingDay();
+        }
+        tree.addAll(ids, starts, ends, count);
+    }
+
+    // Inclusive [first, last] day, or null when the bounds leave no day between them
+    private static int[] dayBounds(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        long first = lower == null ? NO_DATE + 1L : epochDay((LocalDate) lower) + (lowerInclusive ? 0L : 1L);
+        long last = upper == null ? Integer.MAX_VALUE : epochDay((LocalDate) upper) - (upperInclusive ? 0L : 1L);
+        first = Math.max(first, NO_DATE + 1L);
+        last = Math.min(last, Integer.MAX_VALUE);
+        return first > last ? null : new int[]{(int) first, (int) last};
+    }
+}
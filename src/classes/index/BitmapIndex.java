@@ -0,0 +1,58 @@
+package classes.index;
+
+import java.util.*;
+
+// Bitmap index: key -> RoaringBitmap of the ids that currently have it. Filters over several attributes are
+// answered with AND/OR/ANDNOT over the bitmaps instead of testing every entity; null keys are not indexed.
+// Like SecondaryIndex it remembers the key each id was filed under, so re-filing needs only the new key.
+// Not thread-safe.
+public class BitmapIndex {
+    private final Map<Object, RoaringBitmap> byKey = new HashMap<>();
+    private final IntHashIndex<Object> indexedKeys = new IntHashIndex<>();
+
+    // ========== ACCESS ==========
+
+    // The live bitmap for the key (empty when absent); callers combine it but must not modify it
+    public RoaringBitmap get(Object key) {
+        RoaringBitmap ids = key == null ? null : byKey.get(key);
+        return ids == null ? new RoaringBitmap() : ids;
+    }
+
+    public int count(Object key) {
+        RoaringBitmap ids = key == null ? null : byKey.get(key);
+        return ids == null ? 0 : ids.cardinality();
+    }
+
+    public Set<Object> keys() {
+        return Collections.unmodifiableSet(byKey.keySet());
+    }
+
+    // Bitmaps only; the id -> key map used for re-filing is not counted
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (RoaringBitmap ids : byKey.values()) bytes += ids.sizeInBytes();
+        return bytes;
+    }
+
+    // ========== MUTATION ==========
+
+    public void add(int id, Object key) {
+        remove(id);
+        if (key == null) return;
+        byKey.computeIfAbsent(key, k -> new RoaringBitmap()).add(id);
+        indexedKeys.put(id, key);
+    }
+
+    public void remove(int id) {
+        Object key = indexedKeys.remove(id);
+        if (key == null) return;
+
+        RoaringBitmap ids = byKey.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) byKey.remove(key);
+    }
+
+    public void clear() {
+        byKey.clear();
+        indexedKeys.clear();
+    }
+}
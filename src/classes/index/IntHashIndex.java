@@ -0,0 +1,162 @@
+package classes.index;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Open-addressing hash map from int keys to values, with linear probing and no boxing of the keys.
+// Null values are not allowed (a null slot means "empty"). Not thread-safe.
+public class IntHashIndex<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public IntHashIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntHashIndex(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    // ========== ACCESS ==========
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) return (V) values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (Object value : values) {
+            if (value != null) action.accept((V) value);
+        }
+    }
+
+    // ========== MUTATION ==========
+
+    // Returns the previous value for the key, or null
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) throw new IllegalArgumentException("Index values cannot be null");
+
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) resize(values.length * 2);
+        return null;
+    }
+
+    // Returns the removed value, or null when the key was absent
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                deleteSlot(slot);
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Removes the key only while it still maps to this exact value
+    public boolean remove(int key, V value) {
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                if (values[slot] != value) return false;
+                deleteSlot(slot);
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // ========== PRIVATE HELPERS ==========
+
+    // Backward-shift deletion: entries after the hole that probed past it are moved up, so no tombstones are needed
+    private void deleteSlot(int hole) {
+        values[hole] = null;
+        size--;
+        int slot = (hole + 1) & mask;
+        while (values[slot] != null) {
+            int home = slot(keys[slot]);
+            // move the entry if its home slot is not in the cyclic range (hole, slot]
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                values[slot] = null;
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9; // Fibonacci hashing spreads sequential ids
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = slot(oldKeys[i]);
+            while (values[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3; // load factor 0.75
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 <= expectedSize) capacity <<= 1;
+        return capacity;
+    }
+}
@@ -0,0 +1,298 @@
+package classes.index;
+
+import java.util.Arrays;
+
+// Closed int intervals [start, end], each with an int id, in a treap ordered by (start, id). Every node also carries
+// the smallest and largest end in its subtree, so queries skip whole subtrees that end too early or too late:
+// start-range queries cost O(log n + k), overlap and stabbing queries at worst O((k + 1) log n). Intervals are
+// stored as given, even one that ends before it starts. Nodes live in parallel int arrays with a free list rather
+// than as objects. Not thread-safe.
+public class IntervalTree {
+    private static final int NIL = 0; // node 0 is a sentinel whose end bounds never prune anything
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] start = new int[MIN_CAPACITY];
+    private int[] end = new int[MIN_CAPACITY];
+    private int[] id = new int[MIN_CAPACITY];
+    private int[] minEnd = new int[MIN_CAPACITY];
+    private int[] maxEnd = new int[MIN_CAPACITY];
+    private int[] left = new int[MIN_CAPACITY];
+    private int[] right = new int[MIN_CAPACITY]; // doubles as the free list link
+    private int[] priority = new int[MIN_CAPACITY];
+
+    private int root = NIL;
+    private int size;
+    private int used = 1; // nodes ever handed out, the sentinel included
+    private int free = NIL;
+    private int seed = 0x2545F491;
+
+    // split() hands back its two halves here
+    private int splitLeft;
+    private int splitRight;
+
+    public IntervalTree() {
+        minEnd[NIL] = Integer.MAX_VALUE;
+        maxEnd[NIL] = Integer.MIN_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // ========== QUERIES ==========
+
+    // Ids of the intervals that share at least one point with [from, to]
+    public RoaringBitmap overlapping(int from, int to) {
+        RoaringBitmap result = new RoaringBitmap();
+        if (from <= to) overlapping(root, from, to, result);
+        return result;
+    }
+
+    // Ids of the intervals that contain the point
+    public RoaringBitmap stabbing(int point) {
+        return overlapping(point, point);
+    }
+
+    public RoaringBitmap startingBetween(int from, int to) {
+        RoaringBitmap result = new RoaringBitmap();
+        if (from <= to) startingBetween(root, from, to, result);
+        return result;
+    }
+
+    public RoaringBitmap endingBetween(int from, int to) {
+        RoaringBitmap result = new RoaringBitmap();
+        if (from <= to) endingBetween(root, from, to, result);
+        return result;
+    }
+
+    // ========== MODIFICATION ==========
+
+    public void add(int intervalId, int intervalStart, int intervalEnd) {
+        int node = allocate();
+        start[node] = intervalStart;
+        end[node] = intervalEnd;
+        id[node] = intervalId;
+        minEnd[node] = intervalEnd;
+        maxEnd[node] = intervalEnd;
+        left[node] = NIL;
+        right[node] = NIL;
+        priority[node] = nextPriority();
+        root = insert(root, node);
+        size++;
+    }
+
+    // Adds count intervals at once. An empty tree is built balanced from the sorted intervals, with priorities
+    // handed out level by level so it looks like a treap built by random inserts; that is much faster than
+    // adding them one at a time.
+    public void addAll(int[] ids, int[] starts, int[] ends, int count) {
+        if (size != 0) {
+            for (int i = 0; i < count; i++) add(ids[i], starts[i], ends[i]);
+            return;
+        }
+        clear();
+        if (count == 0) return;
+
+        // (start, input position) sorted as longs, then each run of equal starts re-sorted by id
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) order[i] = (long) starts[i] << 32 | i;
+        Arrays.sort(order);
+        for (int from = 0, to; from < count; from = to) {
+            int runStart = starts[(int) order[from]];
+            to = from + 1;
+            while (to < count && starts[(int) order[to]] == runStart) to++;
+            if (to - from < 2) continue;
+            for (int k = from; k < to; k++) order[k] = (long) ids[(int) order[k]] << 32 | (order[k] & 0xFFFFFFFFL);
+            Arrays.sort(order, from, to);
+        }
+
+        while (start.length <= count) grow();
+        for (int k = 0; k < count; k++) {
+            int i = (int) order[k];
+            int node = k + 1; // nodes 1..count in tree order
+            start[node] = starts[i];
+            end[node] = ends[i];
+            id[node] = ids[i];
+        }
+        used = count + 1;
+        root = build(1, count);
+        size = count;
+
+        int[] priorities = new int[count];
+        for (int i = 0; i < count; i++) priorities[i] = nextPriority();
+        Arrays.sort(priorities);
+        int[] queue = new int[count]; // breadth first, so every parent gets a higher priority than its children
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        while (head < tail) {
+            int node = queue[head];
+            priority[node] = priorities[count - 1 - head++];
+            if (left[node] != NIL) queue[tail++] = left[node];
+            if (right[node] != NIL) queue[tail++] = right[node];
+        }
+    }
+
+    // Removes the interval added with this id and start; false when there is none
+    public boolean remove(int intervalId, int intervalStart) {
+        int before = size;
+        root = remove(root, intervalStart, intervalId);
+        return size != before;
+    }
+
+    public void clear() {
+        root = NIL;
+        size = 0;
+        used = 1;
+        free = NIL;
+    }
+
+    // ========== PRIVATE HELPERS ==========
+
+    private void overlapping(int node, int from, int to, RoaringBitmap result) {
+        if (node == NIL || maxEnd[node] < from) return;
+        overlapping(left[node], from, to, result);
+        if (start[node] > to) return; // so does everything to the right
+        if (end[node] >= from) result.add(id[node]);
+        overlapping(right[node], from, to, result);
+    }
+
+    private void startingBetween(int node, int from, int to, RoaringBitmap result) {
+        if (node == NIL) return;
+        if (start[node] >= from) startingBetween(left[node], from, to, result);
+        if (start[node] >= from && start[node] <= to) result.add(id[node]);
+        if (start[node] <= to) startingBetween(right[node], from, to, result);
+    }
+
+    private void endingBetween(int node, int from, int to, RoaringBitmap result) {
+        if (node == NIL || maxEnd[node] < from || minEnd[node] > to) return;
+        endingBetween(left[node], from, to, result);
+        if (end[node] >= from && end[node] <= to) result.add(id[node]);
+        endingBetween(right[node], from, to, result);
+    }
+
+    // Balanced subtree over the consecutive nodes from..to, which are in (start, id) order
+    private int build(int from, int to) {
+        if (from > to) return NIL;
+        int node = (from + to) >>> 1;
+        left[node] = build(from, node - 1);
+        right[node] = build(node + 1, to);
+        update(node);
+        return node;
+    }
+
+    private int insert(int node, int added) {
+        if (node == NIL) return added;
+        if (priority[added] > priority[node]) {
+            split(node, start[added], id[added]);
+            left[added] = splitLeft;
+            right[added] = splitRight;
+            update(added);
+            return added;
+        }
+        if (before(added, start[node], id[node])) {
+            left[node] = insert(left[node], added);
+        } else {
+            right[node] = insert(right[node], added);
+        }
+        update(node);
+        return node;
+    }
+
+    private int remove(int node, int intervalStart, int intervalId) {
+        if (node == NIL) return NIL;
+        if (start[node] == intervalStart && id[node] == intervalId) {
+            int merged = merge(left[node], right[node]);
+            release(node);
+            size--;
+            return merged;
+        }
+        if (intervalStart < start[node] || (intervalStart == start[node] && intervalId < id[node])) {
+            left[node] = remove(left[node], intervalStart, intervalId);
+        } else {
+            right[node] = remove(right[node], intervalStart, intervalId);
+        }
+        update(node);
+        return node;
+    }
+
+    // Splits the subtree into nodes ordered before (start, id) and the rest
+    private void split(int node, int splitStart, int splitId) {
+        if (node == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+        } else if (before(node, splitStart, splitId)) {
+            split(right[node], splitStart, splitId);
+            right[node] = splitLeft;
+            update(node);
+            splitLeft = node;
+        } else {
+            split(left[node], splitStart, splitId);
+            left[node] = splitRight;
+            update(node);
+            splitRight = node;
+        }
+    }
+
+    // Every node of a is ordered before every node of b
+    private int merge(int a, int b) {
+        if (a == NIL) return b;
+        if (b == NIL) return a;
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private boolean before(int node, int otherStart, int otherId) {
+        return start[node] < otherStart || (start[node] == otherStart && id[node] < otherId);
+    }
+
+    private void update(int node) {
+        minEnd[node] = Math.min(end[node], Math.min(minEnd[left[node]], minEnd[right[node]]));
+        maxEnd[node] = Math.max(end[node], Math.max(maxEnd[left[node]], maxEnd[right[node]]));
+    }
+
+    private int nextPriority() {
+        int x = seed; // xorshift
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+        return x;
+    }
+
+    private int allocate() {
+        if (free != NIL) {
+            int node = free;
+            free = right[node];
+            return node;
+        }
+        if (used == start.length) grow();
+        return used++;
+    }
+
+    private void release(int node) {
+        right[node] = free;
+        free = node;
+    }
+
+    private void grow() {
+        int capacity = start.length * 2;
+        start = Arrays.copyOf(start, capacity);
+        end = Arrays.copyOf(end, capacity);
+        id = Arrays.copyOf(id, capacity);
+        minEnd = Arrays.copyOf(minEnd, capacity);
+        maxEnd = Arrays.copyOf(maxEnd, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+    }
+}
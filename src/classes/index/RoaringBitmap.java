@@ -0,0 +1,497 @@
+package classes.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+// Compressed set of ints in the Roaring layout: values are grouped by their high 16 bits into chunks, and each
+// chunk keeps its low 16 bits either as a sorted char array (up to 4096 values) or as a 65536-bit bitmap,
+// whichever is smaller. Sparse and dense id ranges both stay compact, and AND/OR/ANDNOT run chunk by chunk.
+// Values are ordered as unsigned ints. Not thread-safe.
+public class RoaringBitmap {
+    private static final int ARRAY_MAX = 4096; // past this a bitmap chunk (8 KB) is smaller than an array
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public static RoaringBitmap of(int... values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value : values) bitmap.add(value);
+        return bitmap;
+    }
+
+    // ========== ACCESS ==========
+
+    public boolean contains(int value) {
+        int i = indexOf(high(value));
+        return i >= 0 && containers[i].contains(low(value));
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) cardinality += containers[i].cardinality();
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Visits the values in ascending (unsigned) order
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) containers[i].forEach(keys[i] << 16, action);
+    }
+
+    // Visits the values from `from` upwards in ascending order until the action returns false
+    public void forEachFrom(int from, IntPredicate action) {
+        char high = high(from);
+        int i = indexOf(high);
+        if (i < 0) i = -i - 1;
+        for (; i < size; i++) {
+            char start = keys[i] == high ? low(from) : 0;
+            if (!containers[i].forEachFrom(keys[i] << 16, start, action)) return;
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int[] count = {0};
+        forEach(value -> values[count[0]++] = value);
+        return values;
+    }
+
+    public long sizeInBytes() {
+        long bytes = 16 + keys.length * 2L + containers.length * 8L;
+        for (int i = 0; i < size; i++) bytes += containers[i].sizeInBytes();
+        return bytes;
+    }
+
+    // ========== MUTATION ==========
+
+    public boolean add(int value) {
+        char high = high(value);
+        int i = indexOf(high);
+        if (i < 0) {
+            insertAt(-i - 1, high, new ArrayContainer().add(low(value)));
+            return true;
+        }
+        int before = containers[i].cardinality();
+        containers[i] = containers[i].add(low(value));
+        return containers[i].cardinality() > before;
+    }
+
+    public boolean remove(int value) {
+        int i = indexOf(high(value));
+        if (i < 0) return false;
+
+        int before = containers[i].cardinality();
+        Container container = containers[i].remove(low(value));
+        int after = container.cardinality();
+        if (after == 0) {
+            removeAt(i);
+        } else {
+            containers[i] = container;
+        }
+        return after < before;
+    }
+
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    // ========== SET OPERATIONS ==========
+    // Each returns a new bitmap and leaves its operands unchanged
+
+    public static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container container = a.containers[i].and(b.containers[j]);
+                if (container.cardinality() > 0) result.append(a.keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static RoaringBitmap or(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.append(a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.append(a.keys[i], a.containers[i].or(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Values of a that are not in b
+    public static RoaringBitmap andNot(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) j++;
+            Container container = j < b.size && b.keys[j] == a.keys[i]
+                    ? a.containers[i].andNot(b.containers[j])
+                    : a.containers[i].copy();
+            if (container.cardinality() > 0) result.append(a.keys[i], container);
+        }
+        return result;
+    }
+
+    // ========== PRIVATE HELPERS ==========
+
+    private static char high(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char low(int value) {
+        return (char) value;
+    }
+
+    private int indexOf(char high) {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private void insertAt(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    private void append(char key, Container container) {
+        insertAt(size, key, container);
+    }
+
+    // ========== CONTAINERS ==========
+    // Mutators return the container to keep, which may have switched representation
+
+    private abstract static class Container {
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int high, IntConsumer action);
+
+        // False when the action asked to stop
+        abstract boolean forEachFrom(int high, char start, IntPredicate action);
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this.values = new char[4];
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) return this;
+            if (cardinality == ARRAY_MAX) return toBitmap().add(value);
+
+            i = -i - 1;
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, values.length * 2));
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality())];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) return other.or(this);
+
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > ARRAY_MAX) {
+                BitmapContainer bitmap = toBitmap();
+                for (int j = 0; j < array.cardinality; j++) bitmap.add(array.values[j]);
+                return bitmap.cardinality() > ARRAY_MAX ? bitmap : bitmap.toArrayContainer();
+            }
+
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) result[count++] = values[i];
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 4)), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) action.accept(high | values[i]);
+        }
+
+        @Override
+        boolean forEachFrom(int high, char start, IntPredicate action) {
+            int i = Arrays.binarySearch(values, 0, cardinality, start);
+            for (i = i < 0 ? -i - 1 : i; i < cardinality; i++) {
+                if (!action.test(high | values[i])) return false;
+            }
+            return true;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + values.length * 2L;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) bitmap.add(values[i]);
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words = new long[1024];
+        private int cardinality;
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            int word = value >>> 6;
+            if ((words[word] & bit) == 0) {
+                words[word] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+            int word = value >>> 6;
+            if ((words[word] & bit) != 0) {
+                words[word] &= ~bit;
+                cardinality--;
+            }
+            return cardinality > ARRAY_MAX ? this : toArrayContainer();
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) return other.and(this);
+
+            BitmapContainer bitmap = (BitmapContainer) other;
+            BitmapContainer result = new BitmapContainer();
+            for (int i = 0; i < words.length; i++) result.words[i] = words[i] & bitmap.words[i];
+            return result.recount();
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = copy();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) result.add(array.values[i]);
+                return result;
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            for (int i = 0; i < words.length; i++) result.words[i] |= bitmap.words[i];
+            return result.recount();
+        }
+
+        @Override
+        Container andNot(Container other) {
+            BitmapContainer result = copy();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    result.words[value >>> 6] &= ~(1L << value);
+                }
+            } else {
+                BitmapContainer bitmap = (BitmapContainer) other;
+                for (int i = 0; i < words.length; i++) result.words[i] &= ~bitmap.words[i];
+            }
+            return result.recount();
+        }
+
+        @Override
+        BitmapContainer copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, words.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        boolean forEachFrom(int high, char start, IntPredicate action) {
+            for (int i = start >>> 6; i < words.length; i++) {
+                long word = i == start >>> 6 ? words[i] & (-1L << start) : words[i];
+                while (word != 0) {
+                    if (!action.test(high | (i << 6) | Long.numberOfTrailingZeros(word))) return false;
+                    word &= word - 1;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + words.length * 8L;
+        }
+
+        // Recomputes the cardinality after bulk word operations and shrinks back to an array when sparse
+        private Container recount() {
+            int count = 0;
+            for (long word : words) count += Long.bitCount(word);
+            cardinality = count;
+            return cardinality > ARRAY_MAX ? this : toArrayContainer();
+        }
+
+        ArrayContainer toArrayContainer() {
+            char[] values = new char[Math.max(cardinality, 4)];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
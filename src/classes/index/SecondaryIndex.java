@@ -0,0 +1,84 @@
+package classes.index;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+// Non-unique index: key -> the set of entities (by id) that currently have it. Keys come from keyOf, which is
+// expected to normalize them; entities with a null key are not indexed.
+// The index remembers the key each id was filed under, so an entity whose field was edited in place is re-filed
+// with update() without the caller knowing the old value. Not thread-safe.
+public class SecondaryIndex<T> {
+    private final ToIntFunction<T> idOf;
+    private final Function<T, String> keyOf;
+    private final Map<String, IntHashIndex<T>> byKey = new HashMap<>();
+    private final IntHashIndex<String> indexedKeys = new IntHashIndex<>();
+
+    public SecondaryIndex(ToIntFunction<T> idOf, Function<T, String> keyOf) {
+        this.idOf = idOf;
+        this.keyOf = keyOf;
+    }
+
+    // ========== ACCESS ==========
+
+    // Entities filed under the key, ordered by id
+    public List<T> get(String key) {
+        IntHashIndex<T> entities = key == null ? null : byKey.get(key);
+        if (entities == null) return new ArrayList<>();
+
+        List<T> result = new ArrayList<>(entities.size());
+        entities.forEachValue(result::add);
+        result.sort(Comparator.comparingInt(idOf));
+        return result;
+    }
+
+    // Ids filed under the key
+    public RoaringBitmap ids(String key) {
+        IntHashIndex<T> entities = key == null ? null : byKey.get(key);
+        RoaringBitmap ids = new RoaringBitmap();
+        if (entities != null) entities.forEachValue(entity -> ids.add(idOf.applyAsInt(entity)));
+        return ids;
+    }
+
+    public int count(String key) {
+        IntHashIndex<T> entities = key == null ? null : byKey.get(key);
+        return entities == null ? 0 : entities.size();
+    }
+
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(byKey.keySet());
+    }
+
+    // ========== MUTATION ==========
+
+    public void add(T entity) {
+        String key = keyOf.apply(entity);
+        if (key == null) return;
+        int id = idOf.applyAsInt(entity);
+        byKey.computeIfAbsent(key, k -> new IntHashIndex<>()).put(id, entity);
+        indexedKeys.put(id, key);
+    }
+
+    public void remove(T entity) {
+        int id = idOf.applyAsInt(entity);
+        String key = indexedKeys.get(id);
+        if (key == null) return;
+
+        IntHashIndex<T> entities = byKey.get(key);
+        if (entities != null && entities.remove(id, entity)) {
+            indexedKeys.remove(id);
+            if (entities.isEmpty()) byKey.remove(key);
+        }
+    }
+
+    // Re-files the entity after its key field changed
+    public void update(T entity) {
+        remove(entity);
+        add(entity);
+    }
+
+    public void clear() {
+        byKey.clear();
+        indexedKeys.clear();
+    }
+}
@@ -0,0 +1,107 @@
+package mapper;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+// Reflection metadata for one bean class, computed once and cached by ObjectMapper
+class BeanDescriptor<T> {
+    enum Kind { INT, LONG, DOUBLE, FLOAT, BOOLEAN, STRING, SYMBOL, LIST, BEAN, OTHER }
+
+    static class Property {
+        final String name;
+        final Field field;
+        final Kind kind;
+        final Class<?> type;
+        final Class<?> elementType; // element class for List fields, Object.class when unknown
+
+        Property(Field field) {
+            this.name = field.getName();
+            this.field = field;
+            this.type = field.getType();
+            this.kind = type == String.class && field.isAnnotationPresent(JsonSymbol.class)
+                    ? Kind.SYMBOL
+                    : kindOf(type);
+            this.elementType = kind == Kind.LIST ? listElementType(field) : null;
+        }
+    }
+
+    final Class<T> type;
+    final Property[] properties; // declaration order
+    private final Constructor<T> constructor;
+    private final Map<String, Property> propertiesByName;
+
+    private BeanDescriptor(Class<T> type) throws JSONException {
+        this.type = type;
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new JSONException("No default constructor for " + type.getName(), e);
+        }
+
+        List<Property> list = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) continue;
+            field.setAccessible(true);
+            list.add(new Property(field));
+        }
+        this.properties = list.toArray(new Property[0]);
+        this.propertiesByName = new HashMap<>(properties.length * 2);
+        for (Property property : properties) {
+            propertiesByName.put(property.name, property);
+        }
+    }
+
+    static <T> BeanDescriptor<T> create(Class<T> type) throws JSONException {
+        return new BeanDescriptor<>(type);
+    }
+
+    T newInstance() throws JSONException {
+        try {
+            return constructor.newInstance();
+        } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
+            throw new JSONException("Failed to instantiate " + type.getName(), e);
+        }
+    }
+
+    Property property(String name) {
+        return propertiesByName.get(name);
+    }
+
+    static boolean isScalar(Class<?> type) {
+        return type == String.class || type == Integer.class || type == int.class ||
+                type == Double.class || type == double.class || type == Boolean.class ||
+                type == boolean.class || type == Long.class || type == long.class ||
+                type == Float.class || type == float.class;
+    }
+
+    static boolean isBean(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && !type.isInterface() && !type.isEnum() &&
+                !isScalar(type) && type != Object.class && !Number.class.isAssignableFrom(type) &&
+                !Map.class.isAssignableFrom(type) && !Collection.class.isAssignableFrom(type);
+    }
+
+    private static Kind kindOf(Class<?> type) {
+        if (type == int.class) return Kind.INT;
+        if (type == long.class) return Kind.LONG;
+        if (type == double.class) return Kind.DOUBLE;
+        if (type == float.class) return Kind.FLOAT;
+        if (type == boolean.class) return Kind.BOOLEAN;
+        if (type == String.class) return Kind.STRING;
+        if (List.class.isAssignableFrom(type)) return Kind.LIST;
+        if (isBean(type)) return Kind.BEAN;
+        return Kind.OTHER;
+    }
+
+    private static Class<?> listElementType(Field field) {
+        Type genericType = field.getGenericType();
+        if (genericType instanceof ParameterizedType pType) {
+            Type[] typeArgs = pType.getActualTypeArguments();
+            if (typeArgs.length > 0 && typeArgs[0] instanceof Class<?> itemClass) {
+                return itemClass;
+            }
+        }
+        return Object.class;
+    }
+}
@@ -0,0 +1,8 @@
+package mapper;
+
+// Reads and writes one bean type without reflection; implementations are generated for @JsonSerializable classes
+public interface JsonCodec<T> {
+    T read(JsonReader reader) throws JSONException;
+
+    void write(JsonWriter writer, T value) throws JSONException;
+}
@@ -0,0 +1,601 @@
+package mapper;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Pull parser: the caller asks for one token at a time and nothing is buffered beyond a fixed char window
+public class JsonReader implements Closeable {
+    public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+    // Nesting scopes kept on the stack
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+    private static final int CLOSED = 8;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int NAME_CACHE_SIZE = 64;
+    private static final int SYMBOL_CACHE_SIZE = 256;
+
+    private final Reader in;          // char input, null in byte mode
+    private final ByteBuffer bytes;   // UTF-8 input, null in char mode
+    private final char[] buffer;
+    private byte[] byteScratch;
+    private int pos;
+    private int limit;
+    private long bufferOffset; // number of chars discarded before buffer[0]
+
+    private int[] stack = new int[32];
+    private int stackSize;
+    private Token peeked;
+
+    private final StringBuilder scratch = new StringBuilder();
+    private final String[] nameCache = new String[NAME_CACHE_SIZE];
+    private String[] symbolCache; // canonical symbols seen by this reader, allocated on first use
+    private long peekedLong;
+
+    public JsonReader(Reader in) {
+        if (in == null) throw new NullPointerException("Reader cannot be null");
+        this.in = in;
+        this.bytes = null;
+        this.buffer = new char[BUFFER_SIZE];
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    // Parses the remaining bytes of the buffer as UTF-8 without decoding anything but string values
+    public JsonReader(ByteBuffer utf8) {
+        if (utf8 == null) throw new NullPointerException("Buffer cannot be null");
+        this.in = null;
+        this.bytes = utf8;
+        this.buffer = null;
+        this.byteScratch = new byte[256];
+        this.pos = utf8.position();
+        this.limit = utf8.limit();
+        if (limit - pos >= 3 && utf8.get(pos) == (byte) 0xEF && utf8.get(pos + 1) == (byte) 0xBB && utf8.get(pos + 2) == (byte) 0xBF) {
+            pos += 3; // byte order mark
+        }
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    public JsonReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    // Byte mode only: restarts the reader on the single value stored in [start, end) of the same buffer
+    void reset(int start, int end) {
+        if (bytes == null) throw new IllegalStateException("Only byte input can be reset");
+        pos = start;
+        limit = end;
+        peeked = null;
+        stackSize = 0;
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    // ========== STRUCTURE ==========
+
+    public Token peek() throws JSONException {
+        if (peeked == null) peeked = doPeek();
+        return peeked;
+    }
+
+    public void beginObject() throws JSONException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+        peeked = null;
+    }
+
+    public void endObject() throws JSONException {
+        expect(Token.END_OBJECT);
+        stackSize--;
+        peeked = null;
+    }
+
+    public void beginArray() throws JSONException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+        peeked = null;
+    }
+
+    public void endArray() throws JSONException {
+        expect(Token.END_ARRAY);
+        stackSize--;
+        peeked = null;
+    }
+
+    public boolean hasNext() throws JSONException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    // ========== VALUES ==========
+
+    public String nextName() throws JSONException {
+        expect(Token.NAME);
+        peeked = null;
+        return readName();
+    }
+
+    public String nextString() throws JSONException {
+        Token token = peek();
+        peeked = null;
+        switch (token) {
+            case STRING: return readString();
+            case NUMBER: return readNumberLiteral();
+            case BOOLEAN: return String.valueOf(readBoolean());
+            default:
+                peeked = token;
+                throw syntaxError("Expected STRING but found " + token);
+        }
+    }
+
+    // A string value that repeats across beans, as SymbolTable.SHARED's canonical instance. Plain ASCII values
+    // this reader has seen before are matched in the buffer, so repeats allocate nothing.
+    public String nextSymbol() throws JSONException {
+        if (peek() != Token.STRING) return SymbolTable.SHARED.intern(nextString());
+        peeked = null;
+        if (symbolCache == null) symbolCache = new String[SYMBOL_CACHE_SIZE];
+        int start = pos + 1;
+        int hash = 0;
+        for (int i = start; i < limit; i++) {
+            char c = at(i);
+            if (c == '"') {
+                int length = i - start;
+                int slot = (hash ^ (hash >>> 16)) & (SYMBOL_CACHE_SIZE - 1);
+                String cached = symbolCache[slot];
+                if (cached == null || !regionMatches(cached, start, length)) {
+                    cached = SymbolTable.SHARED.intern(
+                            bytes != null ? decodeUtf8(start, length) : new String(buffer, start, length));
+                    symbolCache[slot] = cached;
+                }
+                pos = i + 1;
+                return cached;
+            }
+            if (c == '\\' || c >= 0x80) break; // escapes and non-ASCII values take the normal path
+            hash = 31 * hash + c;
+        }
+        return SymbolTable.SHARED.intern(readString());
+    }
+
+    public boolean nextBoolean() throws JSONException {
+        Token token = peek();
+        peeked = null;
+        switch (token) {
+            case BOOLEAN: return readBoolean();
+            case STRING: return Boolean.parseBoolean(readString());
+            default:
+                peeked = token;
+                throw syntaxError("Expected BOOLEAN but found " + token);
+        }
+    }
+
+    public void nextNull() throws JSONException {
+        expect(Token.NULL);
+        peeked = null;
+        readLiteral("null");
+    }
+
+    public int nextInt() throws JSONException {
+        long value = nextLong();
+        if (value != (int) value) throw syntaxError("Number out of int range: " + value);
+        return (int) value;
+    }
+
+    public long nextLong() throws JSONException {
+        String literal = nextNumberText();
+        if (literal == null) return peekedLong;
+        try {
+            return Long.parseLong(literal);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(literal);
+            } catch (NumberFormatException ex) {
+                throw new JSONException("Invalid number format: " + literal, ex);
+            }
+        }
+    }
+
+    public double nextDouble() throws JSONException {
+        String literal = nextNumberText();
+        if (literal == null) return peekedLong;
+        try {
+            return Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            throw new JSONException("Invalid number format: " + literal, e);
+        }
+    }
+
+    // Returns Integer, Long or Double depending on the literal, like the old tree parser did
+    public Number nextNumber() throws JSONException {
+        String literal = nextNumberText();
+        if (literal == null) {
+            long value = peekedLong;
+            if (value == (int) value) return (int) value;
+            return value;
+        }
+        try {
+            if (literal.indexOf('.') >= 0 || literal.indexOf('e') >= 0 || literal.indexOf('E') >= 0) {
+                return Double.parseDouble(literal);
+            }
+            return Long.parseLong(literal);
+        } catch (NumberFormatException e) {
+            throw new JSONException("Invalid number format: " + literal, e);
+        }
+    }
+
+    // Skips the next value (including whole objects/arrays) without materializing it
+    public void skipValue() throws JSONException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+            switch (token) {
+                case BEGIN_OBJECT: push(EMPTY_OBJECT); depth++; break;
+                case BEGIN_ARRAY: push(EMPTY_ARRAY); depth++; break;
+                case END_OBJECT: case END_ARRAY:
+                    if (depth == 0) {
+                        peeked = token;
+                        throw syntaxError("Expected a value but found " + token);
+                    }
+                    stackSize--;
+                    depth--;
+                    break;
+                case NAME: case STRING: skipString(); break;
+                case NUMBER: skipNumber(); break;
+                case BOOLEAN: readBoolean(); break;
+                case NULL: readLiteral("null"); break;
+                case END_DOCUMENT:
+                    peeked = token;
+                    throw syntaxError("Unexpected end of input");
+            }
+        } while (depth > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        peeked = null;
+        stack[0] = CLOSED;
+        stackSize = 1;
+        if (in != null) in.close();
+    }
+
+    // ========== TOKENIZER ==========
+
+    private Token doPeek() throws JSONException {
+        int scope = stack[stackSize - 1];
+        int c;
+        switch (scope) {
+            case EMPTY_ARRAY:
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') { pos++; return Token.END_ARRAY; }
+                break;
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') { pos++; return Token.END_ARRAY; }
+                if (c != ',') throw syntaxError("Expected ',' or ']'");
+                pos++;
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') { pos++; return Token.END_OBJECT; }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') throw syntaxError("Expected ',' or '}'");
+                    pos++;
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') throw syntaxError("Expected name");
+                stack[stackSize - 1] = DANGLING_NAME;
+                return Token.NAME;
+            case DANGLING_NAME:
+                c = nextNonWhitespace();
+                if (c != ':') throw syntaxError("Expected ':'");
+                pos++;
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_DOCUMENT:
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                if (nextNonWhitespace() == '\uFEFF') pos++; // byte order mark
+                break;
+            case NONEMPTY_DOCUMENT:
+                if (nextNonWhitespace() == -1) return Token.END_DOCUMENT;
+                throw syntaxError("Unexpected trailing content");
+            default:
+                throw new IllegalStateException("JsonReader is closed");
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{': pos++; return Token.BEGIN_OBJECT;
+            case '[': pos++; return Token.BEGIN_ARRAY;
+            case '"': return Token.STRING;
+            case 't': case 'f': return Token.BOOLEAN;
+            case 'n': return Token.NULL;
+            case -1: throw syntaxError("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return Token.NUMBER;
+                throw syntaxError("Unexpected character: " + (char) c);
+        }
+    }
+
+    private int nextNonWhitespace() throws JSONException {
+        while (true) {
+            if (pos == limit && !fill(1)) return -1;
+            char c = at(pos);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    // Reads the quoted string at pos; the fast path copies straight out of the buffer
+    private String readString() throws JSONException {
+        if (bytes != null) return readUtf8String();
+        pos++; // opening quote
+        for (int i = pos; i < limit; i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                String result = new String(buffer, pos, i - pos);
+                pos = i + 1;
+                return result;
+            }
+            if (c == '\\') break;
+        }
+
+        StringBuilder sb = scratch;
+        sb.setLength(0);
+        while (true) {
+            if (pos == limit && !fill(1)) throw syntaxError("Unterminated string");
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"') {
+                    sb.append(buffer, start, pos - start);
+                    pos++;
+                    return sb.toString();
+                }
+                if (c == '\\') {
+                    sb.append(buffer, start, pos - start);
+                    pos++;
+                    sb.append(readEscape());
+                    start = pos;
+                    continue;
+                }
+                pos++;
+            }
+            sb.append(buffer, start, pos - start);
+        }
+    }
+
+    // Member names repeat in every object, so plain ASCII names are served from a small cache instead of allocating
+    private String readName() throws JSONException {
+        int start = pos + 1;
+        int hash = 0;
+        for (int i = start; i < limit; i++) {
+            char c = at(i);
+            if (c == '"') {
+                int length = i - start;
+                int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+                String cached = nameCache[slot];
+                if (cached == null || !regionMatches(cached, start, length)) {
+                    cached = bytes != null ? decodeUtf8(start, length) : new String(buffer, start, length);
+                    nameCache[slot] = cached;
+                }
+                pos = i + 1;
+                return cached;
+            }
+            if (c == '\\' || c >= 0x80) break; // escapes and non-ASCII names take the normal path
+            hash = 31 * hash + c;
+        }
+        return readString();
+    }
+
+    private boolean regionMatches(String value, int start, int length) {
+        if (value.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != at(start + i)) return false;
+        }
+        return true;
+    }
+
+    // Byte mode: the string is located by its ASCII delimiters and only then decoded from UTF-8
+    private String readUtf8String() throws JSONException {
+        pos++; // opening quote
+        StringBuilder sb = null;
+        int start = pos;
+        for (int i = pos; i < limit; i++) {
+            byte b = bytes.get(i);
+            if (b == '"') {
+                pos = i + 1;
+                if (sb == null) return decodeUtf8(start, i - start);
+                return sb.append(decodeUtf8(start, i - start)).toString();
+            }
+            if (b == '\\') {
+                if (sb == null) {
+                    sb = scratch;
+                    sb.setLength(0);
+                }
+                sb.append(decodeUtf8(start, i - start));
+                pos = i + 1;
+                sb.append(readEscape());
+                start = pos;
+                i = pos - 1;
+            }
+        }
+        pos = limit;
+        throw syntaxError("Unterminated string");
+    }
+
+    private String decodeUtf8(int start, int length) {
+        if (length == 0) return "";
+        if (byteScratch.length < length) byteScratch = new byte[Math.max(length, byteScratch.length * 2)];
+        bytes.get(start, byteScratch, 0, length);
+        return new String(byteScratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void skipString() throws JSONException {
+        pos++; // opening quote
+        while (true) {
+            if (pos == limit && !fill(1)) throw syntaxError("Unterminated string");
+            char c = at(pos++);
+            if (c == '"') return;
+            if (c == '\\') readEscape();
+        }
+    }
+
+    private char readEscape() throws JSONException {
+        if (pos == limit && !fill(1)) throw syntaxError("Unterminated string");
+        char escaped = at(pos++);
+        switch (escaped) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                if (limit - pos < 4 && !fill(4)) throw syntaxError("Unterminated escape");
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(at(pos++), 16);
+                    if (digit < 0) throw syntaxError("Invalid unicode escape");
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default: throw syntaxError("Invalid escape: \\" + escaped);
+        }
+    }
+
+    // Integral literals that fit in a long are accumulated in place (returning null), everything else as text
+    private String nextNumberText() throws JSONException {
+        Token token = peek();
+        peeked = null;
+        if (token == Token.STRING) return readString().trim();
+        if (token != Token.NUMBER) {
+            peeked = token;
+            throw syntaxError("Expected NUMBER but found " + token);
+        }
+
+        if (limit - pos < 32) fill(32);
+        int p = pos;
+        boolean negative = at(p) == '-';
+        if (negative) p++;
+        long value = 0;
+        int digits = 0;
+        while (p < limit && digits < 18) {
+            char c = at(p);
+            if (c < '0' || c > '9') break;
+            value = value * 10 + (c - '0');
+            digits++;
+            p++;
+        }
+        if (p == limit || digits == 18) return readNumberLiteral();
+        char c = at(p);
+        if (c == '.' || c == 'e' || c == 'E') return readNumberLiteral();
+        if (digits == 0) throw syntaxError("Invalid number");
+        pos = p;
+        peekedLong = negative ? -value : value;
+        return null;
+    }
+
+    private String readNumberLiteral() throws JSONException {
+        StringBuilder sb = scratch;
+        sb.setLength(0);
+        while (pos < limit || fill(1)) {
+            char c = at(pos);
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                sb.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private void skipNumber() throws JSONException {
+        while (pos < limit || fill(1)) {
+            char c = at(pos);
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private boolean readBoolean() throws JSONException {
+        if (at(pos) == 't') {
+            readLiteral("true");
+            return true;
+        }
+        readLiteral("false");
+        return false;
+    }
+
+    private void readLiteral(String word) throws JSONException {
+        int length = word.length();
+        if (limit - pos < length) fill(length);
+        for (int i = 0; i < length; i++) {
+            if (pos + i >= limit || at(pos + i) != word.charAt(i)) {
+                throw syntaxError("Unexpected word, expected: " + word);
+            }
+        }
+        pos += length;
+        if ((pos < limit || fill(1)) && Character.isLetterOrDigit(at(pos))) {
+            throw syntaxError("Unexpected word, expected: " + word);
+        }
+    }
+
+    // Makes sure at least 'minimum' chars are available from pos, compacting the buffer first
+    private boolean fill(int minimum) throws JSONException {
+        if (in == null) return limit - pos >= minimum; // byte mode holds the whole input
+        if (pos > 0) {
+            bufferOffset += pos;
+            limit -= pos;
+            System.arraycopy(buffer, pos, buffer, 0, limit);
+            pos = 0;
+        }
+        try {
+            while (limit < minimum) {
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read == -1) return false;
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new JSONException("Failed to read JSON input", e);
+        }
+        return true;
+    }
+
+    private void expect(Token expected) throws JSONException {
+        Token token = peek();
+        if (token != expected) throw syntaxError("Expected " + expected + " but found " + token);
+    }
+
+    private char at(int index) {
+        return bytes != null ? (char) (bytes.get(index) & 0xff) : buffer[index];
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            int[] newStack = new int[stackSize * 2];
+            System.arraycopy(stack, 0, newStack, 0, stackSize);
+            stack = newStack;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at offset " + (bufferOffset + pos));
+    }
+}
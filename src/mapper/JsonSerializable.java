@@ -0,0 +1,9 @@
+package mapper;
+
+import java.lang.annotation.*;
+
+// Marks a bean for which the codegen module generates a JsonCodec at build time
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface JsonSerializable {
+}
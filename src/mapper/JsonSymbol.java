@@ -0,0 +1,10 @@
+package mapper;
+
+import java.lang.annotation.*;
+
+// Marks a String field whose values repeat across many beans (a state, a category); binding stores the
+// SymbolTable's canonical instance instead of a fresh String per bean
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface JsonSymbol {
+}
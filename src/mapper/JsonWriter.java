@@ -0,0 +1,258 @@
+package mapper;
+
+import java.io.*;
+
+// Streaming writer: output goes through a fixed char buffer that is flushed to the underlying Writer when full
+public class JsonWriter implements Closeable, Flushable {
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int count;
+
+    private int[] stack = new int[32];
+    private int stackSize;
+
+    public JsonWriter(Writer out) {
+        if (out == null) throw new NullPointerException("Writer cannot be null");
+        this.out = out;
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    // ========== STRUCTURE ==========
+
+    public JsonWriter beginObject() throws JSONException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        write('{');
+        return this;
+    }
+
+    public JsonWriter endObject() throws JSONException {
+        int scope = stack[stackSize - 1];
+        if (scope != EMPTY_OBJECT && scope != NONEMPTY_OBJECT) throw new JSONException("Nesting problem: not in an object");
+        stackSize--;
+        write('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws JSONException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        write('[');
+        return this;
+    }
+
+    public JsonWriter endArray() throws JSONException {
+        int scope = stack[stackSize - 1];
+        if (scope != EMPTY_ARRAY && scope != NONEMPTY_ARRAY) throw new JSONException("Nesting problem: not in an array");
+        stackSize--;
+        write(']');
+        return this;
+    }
+
+    public JsonWriter name(String name) throws JSONException {
+        if (name == null) throw new JSONException("Name cannot be null");
+        int scope = stack[stackSize - 1];
+        if (scope == NONEMPTY_OBJECT) {
+            write(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new JSONException("Nesting problem: name outside of an object");
+        }
+        stack[stackSize - 1] = DANGLING_NAME;
+        writeString(name);
+        write(':');
+        return this;
+    }
+
+    // ========== VALUES ==========
+
+    public JsonWriter value(String value) throws JSONException {
+        if (value == null) return nullValue();
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws JSONException {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+
+    // JSON has no NaN or Infinity; writing them would leave a file the reader refuses
+    public JsonWriter value(double value) throws JSONException {
+        if (!Double.isFinite(value)) throw new JSONException("Numeric values must be finite, but was " + value);
+        beforeValue();
+        writeRaw(Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(float value) throws JSONException {
+        if (!Float.isFinite(value)) throw new JSONException("Numeric values must be finite, but was " + value);
+        beforeValue();
+        writeRaw(Float.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws JSONException {
+        beforeValue();
+        writeRaw(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter value(Number value) throws JSONException {
+        if (value == null) return nullValue();
+        if ((value instanceof Double || value instanceof Float) && !Double.isFinite(value.doubleValue())) {
+            throw new JSONException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        writeRaw(value.toString());
+        return this;
+    }
+
+    public JsonWriter nullValue() throws JSONException {
+        beforeValue();
+        writeRaw("null");
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    // ========== PRIVATE HELPERS ==========
+
+    private void beforeValue() throws JSONException {
+        switch (stack[stackSize - 1]) {
+            case EMPTY_DOCUMENT: stack[stackSize - 1] = NONEMPTY_DOCUMENT; break;
+            case EMPTY_ARRAY: stack[stackSize - 1] = NONEMPTY_ARRAY; break;
+            case NONEMPTY_ARRAY: write(','); break;
+            case DANGLING_NAME: stack[stackSize - 1] = NONEMPTY_OBJECT; break;
+            case NONEMPTY_DOCUMENT: throw new JSONException("JSON must have only one top-level value");
+            default: throw new JSONException("Nesting problem: expected a name");
+        }
+    }
+
+    // Single pass: runs of plain chars are copied as-is, only the special chars get escaped
+    private void writeString(String value) throws JSONException {
+        write('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '"') replacement = "\\\"";
+            else if (c == '\\') replacement = "\\\\";
+            else if (c >= 0x20) continue;
+            else if (c == '\n') replacement = "\\n";
+            else if (c == '\r') replacement = "\\r";
+            else if (c == '\t') replacement = "\\t";
+            else if (c == '\b') replacement = "\\b";
+            else if (c == '\f') replacement = "\\f";
+            else replacement = null;
+
+            if (start < i) writeRaw(value, start, i - start);
+            if (replacement != null) {
+                writeRaw(replacement);
+            } else {
+                writeRaw("\\u00");
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xf]);
+            }
+            start = i + 1;
+        }
+        if (start < length) writeRaw(value, start, length - start);
+        write('"');
+    }
+
+    private void writeLong(long value) throws JSONException {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(Long.toString(value));
+            return;
+        }
+        if (BUFFER_SIZE - count < 20) flushBuffer();
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int end = count + digits(value);
+        int i = end;
+        do {
+            buffer[--i] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        count = end;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void write(char c) throws JSONException {
+        if (count == BUFFER_SIZE) flushBuffer();
+        buffer[count++] = c;
+    }
+
+    private void writeRaw(String s) throws JSONException {
+        writeRaw(s, 0, s.length());
+    }
+
+    private void writeRaw(String s, int offset, int length) throws JSONException {
+        while (length > 0) {
+            if (count == BUFFER_SIZE) flushBuffer();
+            int chunk = Math.min(length, BUFFER_SIZE - count);
+            s.getChars(offset, offset + chunk, buffer, count);
+            count += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private void flushBuffer() throws JSONException {
+        if (count == 0) return;
+        try {
+            out.write(buffer, 0, count);
+        } catch (IOException e) {
+            throw new JSONException("Failed to write JSON output", e);
+        }
+        count = 0;
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            int[] newStack = new int[stackSize * 2];
+            System.arraycopy(stack, 0, newStack, 0, stackSize);
+            stack = newStack;
+        }
+        stack[stackSize++] = scope;
+    }
+}
@@ -0,0 +1,68 @@
+package mapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Binds the elements of a top-level JSON array one at a time, the underlying input is closed once exhausted
+public class MappingIterator<T> implements Iterator<T>, Closeable {
+    private final ObjectMapper mapper;
+    private final JsonReader reader;
+    private final Class<T> elementType;
+    private boolean closed;
+
+    MappingIterator(ObjectMapper mapper, JsonReader reader, Class<T> elementType) throws JSONException {
+        this.mapper = mapper;
+        this.reader = reader;
+        this.elementType = elementType;
+
+        if (reader.peek() != JsonReader.Token.BEGIN_ARRAY) {
+            throw new JSONException("JSON root is not an array");
+        }
+        reader.beginArray();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) return false;
+        try {
+            if (reader.hasNext()) return true;
+            reader.endArray();
+            reader.peek(); // reject trailing content
+            close();
+            return false;
+        } catch (JSONException e) {
+            closeQuietly();
+            throw new UncheckedJSONException(e);
+        } catch (IOException e) {
+            throw new UncheckedJSONException(new JSONException("Failed to close JSON input", e));
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        try {
+            return mapper.readElement(reader, elementType);
+        } catch (JSONException e) {
+            closeQuietly();
+            throw new UncheckedJSONException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        reader.close();
+    }
+
+    void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+            // nothing left to read from
+        }
+    }
+}
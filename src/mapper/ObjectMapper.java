@@ -2,9 +2,42 @@ package mapper;
 
 import java.io.*;
 import java.lang.reflect.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ObjectMapper {
+    // STREAMING decodes files through a Reader, IN_MEMORY loads them whole and parses the UTF-8 bytes in place.
+    // IN_MEMORY holds the whole file on the heap while it is read, and never maps it: a live mapping keeps Windows
+    // from replacing the file, which every save does.
+    public enum ReadMode { STREAMING, IN_MEMORY }
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long PARALLEL_THRESHOLD = 1 << 20; // smaller files are not worth splitting
+
+    private final Map<Class<?>, BeanDescriptor<?>> descriptors = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Optional<JsonCodec<?>>> codecs = new ConcurrentHashMap<>(); // empty: no codec
+    private ReadMode readMode = ReadMode.STREAMING;
+
+    // ========== CONFIGURATION ==========
+
+    public ObjectMapper setReadMode(ReadMode readMode) {
+        if (readMode == null) throw new IllegalArgumentException("Read mode cannot be null");
+        this.readMode = readMode;
+        return this;
+    }
+
+    public ReadMode getReadMode() {
+        return readMode;
+    }
 
     // ========== READ METHODS ==========
 
@@ -12,9 +45,8 @@ public class ObjectMapper {
         if (file == null) throw new JSONException("File cannot be null");
         if (valueType == null) throw new JSONException("Class cannot be null");
 
-        try {
-            String json = readFile(file);
-            return readValue(json, valueType);
+        try (JsonReader reader = openReader(file)) {
+            return readValue(reader, valueType);
         } catch (IOException e) {
             throw new JSONException("Failed to read file: " + file.getPath(), e);
         }
@@ -22,308 +54,392 @@ public class ObjectMapper {
 
     public <T> T readValue(String json, Class<T> valueType) throws JSONException {
         if (json == null) throw new JSONException("JSON string cannot be null");
+        return readValue(new StringReader(json), valueType);
+    }
+
+    public <T> T readValue(Reader json, Class<T> valueType) throws JSONException {
+        if (json == null) throw new JSONException("Reader cannot be null");
         if (valueType == null) throw new JSONException("Class cannot be null");
 
-        try {
-            Object parsed = parseJSON(json);
-            return convertToBean(parsed, valueType);
-        } catch (JSONException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new JSONException("Failed to parse JSON", e);
-        }
+        return readValue(new JsonReader(json), valueType);
     }
 
     public <T> List<T> readValueAsList(File file, Class<T> elementType) throws JSONException {
         if (file == null) throw new JSONException("File cannot be null");
         if (elementType == null) throw new JSONException("Class cannot be null");
 
-        try {
-            String json = readFile(file);
-            return readValueAsList(json, elementType);
+        try (JsonReader reader = openReader(file)) {
+            return readValueAsList(reader, elementType);
+        } catch (IOException e) {
+            throw new JSONException("Failed to read file: " + file.getPath(), e);
+        }
+    }
+
+    // Parallel mode: large files are split at element boundaries and the chunks are bound on the pool, in order
+    public <T> List<T> readValueAsList(File file, Class<T> elementType, ForkJoinPool pool) throws JSONException {
+        if (file == null) throw new JSONException("File cannot be null");
+        if (elementType == null) throw new JSONException("Class cannot be null");
+        if (pool == null || pool.getParallelism() < 2 || file.length() < PARALLEL_THRESHOLD) {
+            return readValueAsList(file, elementType);
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return readValueAsList(file, elementType);
+            return new ParallelArrayReader<>(this, readFully(channel, size), elementType).read(pool);
         } catch (IOException e) {
             throw new JSONException("Failed to read file: " + file.getPath(), e);
         }
     }
 
-    @SuppressWarnings("unchecked")
     public <T> List<T> readValueAsList(String json, Class<T> elementType) throws JSONException {
         if (json == null) throw new JSONException("JSON string cannot be null");
+        return readValueAsList(new StringReader(json), elementType);
+    }
+
+    public <T> List<T> readValueAsList(Reader json, Class<T> elementType) throws JSONException {
+        if (json == null) throw new JSONException("Reader cannot be null");
         if (elementType == null) throw new JSONException("Class cannot be null");
 
+        return readValueAsList(new JsonReader(json), elementType);
+    }
+
+    // Lazily binds one array element per next() call; the caller must close the iterator if it stops early
+    public <T> MappingIterator<T> readValues(File file, Class<T> elementType) throws JSONException {
+        if (file == null) throw new JSONException("File cannot be null");
+        if (elementType == null) throw new JSONException("Class cannot be null");
+
+        JsonReader reader;
         try {
-            Object parsed = parseJSON(json);
-            if (!(parsed instanceof List)) {
-                throw new JSONException("JSON root is not an array");
-            }
+            reader = openReader(file);
+        } catch (IOException e) {
+            throw new JSONException("Failed to read file: " + file.getPath(), e);
+        }
 
-            List<Object> rawList = (List<Object>) parsed;
-            List<T> result = new ArrayList<>();
-
-            for (Object item : rawList) {
-                if (item instanceof Map) {
-                    result.add(convertToBean(item, elementType));
-                } else if (elementType.isInstance(item)) {
-                    result.add(elementType.cast(item));
-                } else if (item != null) {
-                    result.add(convertPrimitive(item, elementType));
-                } else {
-                    result.add(null);
-                }
+        try {
+            return new MappingIterator<>(this, reader, elementType);
+        } catch (JSONException e) {
+            try {
+                reader.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
             }
-            return result;
-        } catch (ClassCastException e) {
-            throw new JSONException("Expected JSON array", e);
+            throw e;
         }
     }
 
+    // Stream view over readValues(); use it in try-with-resources so the file is released
+    public <T> Stream<T> streamValues(File file, Class<T> elementType) throws JSONException {
+        MappingIterator<T> iterator = readValues(file, elementType);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::closeQuietly);
+    }
+
     // ========== WRITE METHODS ==========
 
+    // The document is written to a temp file next to the target, forced to disk and moved over the target,
+    // so readers (and a restart after a crash) see either the old file or the new one, never a torn write
     public void writeValue(File file, Object value) throws JSONException {
         if (file == null) throw new JSONException("File cannot be null");
 
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write(writeValueAsString(value));
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + "." +
+                Integer.toHexString(ThreadLocalRandom.current().nextInt()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+                 JsonWriter writer = new JsonWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE))) {
+                write(writer, value);
+                writer.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
             throw new JSONException("Failed to write to file: " + file.getPath(), e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // only left behind when the write itself failed
+            }
         }
     }
 
-    public String writeValueAsString(Object value) throws JSONException {
+    public void writeValue(Writer out, Object value) throws JSONException {
+        if (out == null) throw new JSONException("Writer cannot be null");
+
+        JsonWriter writer = new JsonWriter(out);
+        write(writer, value);
         try {
-            if (value == null) return "null";
-            if (value instanceof String) return "\"" + escapeString((String) value) + "\"";
-            if (value instanceof Number || value instanceof Boolean) return value.toString();
-            if (value instanceof Map) return mapToJson((Map<?, ?>) value);
-            if (value instanceof List) return listToJson((List<?>) value);
-            if (value.getClass().isArray()) return arrayToJson(value);
-            return beanToJson(value);
-        } catch (Exception e) {
-            throw new JSONException("Failed to serialize object", e);
+            writer.flush();
+        } catch (IOException e) {
+            throw new JSONException("Failed to write JSON output", e);
         }
     }
 
+    public String writeValueAsString(Object value) throws JSONException {
+        StringWriter out = new StringWriter();
+        writeValue(out, value);
+        return out.toString();
+    }
+
     // ========== PRIVATE HELPERS ==========
 
-    private String readFile(File file) throws IOException {
-        StringBuilder content = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line);
+    private JsonReader openReader(File file) throws IOException {
+        if (readMode == ReadMode.IN_MEMORY) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size <= Integer.MAX_VALUE) return new JsonReader(readFully(channel, size));
             }
         }
-        return content.toString();
+        return new JsonReader(new FileInputStream(file));
     }
 
-    private Object parseJSON(String json) throws JSONException {
-        JSONTokenizer tokenizer = new JSONTokenizer(json);
-        List<JSONTokenizer.Token> tokens = tokenizer.tokenize();
-        JSONParser parser = new JSONParser(tokens);
-        return parser.parse();
+    // One bulk read into the heap instead of a mapping: Java cannot unmap a MappedByteBuffer, and the mapping would
+    // hold the file open until the buffer is collected
+    private static ByteBuffer readFully(FileChannel channel, long size) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) size);
+        while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+            // a short read just means another round
+        }
+        return bytes.flip();
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> T convertToBean(Object json, Class<T> clazz) throws JSONException {
-        try {
-            if (json == null) {
-                return null;
-            }
-
-            // Handle basic types
-            if (clazz == String.class || clazz == Integer.class || clazz == int.class ||
-                    clazz == Double.class || clazz == double.class || clazz == Boolean.class ||
-                    clazz == boolean.class || clazz == Long.class || clazz == long.class ||
-                    clazz == Float.class || clazz == float.class) {
-                return convertPrimitive(json, clazz);
-            }
-
-            // Handle Map -> Bean
-            if (json instanceof Map) {
-                Map<String, Object> map = (Map<String, Object>) json;
-                T instance = clazz.getDeclaredConstructor().newInstance();
-
-                for (Field field : clazz.getDeclaredFields()) {
-                    field.setAccessible(true);
-                    String fieldName = field.getName();
+    private <T> T readValue(JsonReader reader, Class<T> valueType) throws JSONException {
+        T result = readElement(reader, valueType);
+        reader.peek(); // reject trailing content
+        return result;
+    }
 
-                    if (map.containsKey(fieldName)) {
-                        Object value = map.get(fieldName);
-                        setFieldValue(instance, field, value);
-                    }
-                    // If field doesn't exist in JSON, skip it - Java will keep the default value
-                }
-                return instance;
-            }
+    private <T> List<T> readValueAsList(JsonReader reader, Class<T> elementType) throws JSONException {
+        if (reader.peek() != JsonReader.Token.BEGIN_ARRAY) {
+            throw new JSONException("JSON root is not an array");
+        }
 
-            // Already correct type
-            if (clazz.isInstance(json)) {
-                return clazz.cast(json);
-            }
+        List<T> result = readList(reader, elementType);
+        reader.peek(); // reject trailing content
+        return result;
+    }
 
-            throw new JSONException("Cannot convert to " + clazz.getName());
-        } catch (Exception e) {
-            throw new JSONException("Failed to convert to " + clazz.getName(), e);
+    @SuppressWarnings("unchecked")
+    <T> BeanDescriptor<T> descriptor(Class<T> type) throws JSONException {
+        BeanDescriptor<T> descriptor = (BeanDescriptor<T>) descriptors.get(type);
+        if (descriptor == null) {
+            descriptor = BeanDescriptor.create(type);
+            BeanDescriptor<T> existing = (BeanDescriptor<T>) descriptors.putIfAbsent(type, descriptor);
+            if (existing != null) descriptor = existing;
         }
+        return descriptor;
     }
 
-    private void setFieldValue(Object instance, Field field, Object value) throws Exception {
-        Class<?> fieldType = field.getType();
+    // Generated codecs are looked up once per class; classes without one (cached as empty) fall back to reflection
+    @SuppressWarnings("unchecked")
+    <T> JsonCodec<T> codec(Class<T> type) {
+        Optional<JsonCodec<?>> codec = codecs.get(type);
+        if (codec == null) {
+            codec = findGeneratedCodec(type);
+            codecs.putIfAbsent(type, codec);
+        }
+        return (JsonCodec<T>) codec.orElse(null);
+    }
 
-        // Handle nested objects
-        if (value instanceof Map && !Map.class.isAssignableFrom(fieldType)) {
-            value = convertToBean(value, fieldType);
+    // The codegen module names the codec after the bean's binary name, e.g. classes.Product_RequiredItemJsonCodec
+    private static Optional<JsonCodec<?>> findGeneratedCodec(Class<?> type) {
+        if (!type.isAnnotationPresent(JsonSerializable.class)) return Optional.empty();
+        String codecName = type.getName().replace('$', '_') + "JsonCodec";
+        try {
+            Class<?> codecClass = Class.forName(codecName, true, type.getClassLoader());
+            return Optional.of((JsonCodec<?>) codecClass.getField("INSTANCE").get(null));
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return Optional.empty();
         }
-        // Handle lists
-        else if (value instanceof List && List.class.isAssignableFrom(fieldType)) {
-            value = convertList((List<?>) value, field);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T readElement(JsonReader reader, Class<T> type) throws JSONException {
+        if (reader.peek() == JsonReader.Token.NULL) {
+            reader.nextNull();
+            return null;
         }
-        // Convert primitives
-        else if (!fieldType.isInstance(value)) {
-            value = convertPrimitive(value, fieldType);
+        if (BeanDescriptor.isScalar(type)) return (T) readScalar(reader, type);
+        if (BeanDescriptor.isBean(type)) {
+            JsonCodec<T> codec = codec(type);
+            return codec != null ? codec.read(reader) : readBean(reader, descriptor(type));
         }
 
-        field.set(instance, value);
+        Object value = readTree(reader);
+        if (type.isInstance(value)) return (T) value;
+        throw new JSONException("Cannot convert to " + type.getName());
     }
 
-    private Object convertList(List<?> rawList, Field field) throws JSONException {
-        try {
-            Type genericType = field.getGenericType();
-
-            if (!(genericType instanceof ParameterizedType pType)) {
-                return rawList;
-            }
-
-            Type[] typeArgs = pType.getActualTypeArguments();
+    private <T> List<T> readList(JsonReader reader, Class<T> elementType) throws JSONException {
+        List<T> result = new ArrayList<>();
+        JsonCodec<T> codec = BeanDescriptor.isBean(elementType) ? codec(elementType) : null;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            result.add(codec != null ? codec.read(reader) : readElement(reader, elementType));
+        }
+        reader.endArray();
+        return result;
+    }
 
-            if (typeArgs.length == 0 || !(typeArgs[0] instanceof Class<?> itemClass)) {
-                return rawList;
-            }
+    // Binds object members straight into the bean, unknown members are skipped without allocation
+    private <T> T readBean(JsonReader reader, BeanDescriptor<T> descriptor) throws JSONException {
+        if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            throw new JSONException("Cannot convert " + reader.peek() + " to " + descriptor.type.getName());
+        }
 
-            List<Object> result = new ArrayList<>();
-
-            for (Object item : rawList) {
-                if (item instanceof Map) {
-                    result.add(convertToBean(item, itemClass));
-                } else if (itemClass.isInstance(item)) {
-                    result.add(item);
-                } else if (item != null) {
-                    result.add(convertPrimitive(item, itemClass));
-                } else {
-                    result.add(null);
-                }
+        T instance = descriptor.newInstance();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            BeanDescriptor.Property property = descriptor.property(reader.nextName());
+            if (property == null) {
+                reader.skipValue();
+            } else {
+                readProperty(reader, instance, property);
             }
-            return result;
-        } catch (Exception e) {
-            throw new JSONException("Failed to convert list for field: " + field.getName(), e);
         }
+        reader.endObject();
+        return instance;
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> T convertPrimitive(Object value, Class<T> targetType) throws JSONException {
+    private void readProperty(JsonReader reader, Object instance, BeanDescriptor.Property property) throws JSONException {
+        Field field = property.field;
         try {
-            if (targetType == String.class) {
-                return (T) value.toString();
+            if (reader.peek() == JsonReader.Token.NULL) {
+                reader.nextNull();
+                // primitives keep their default value
+                if (!property.type.isPrimitive()) field.set(instance, null);
+                return;
             }
 
-            if (value instanceof Number num) {
-                if (targetType == Integer.class || targetType == int.class) {
-                    return (T) Integer.valueOf(num.intValue());
-                } else if (targetType == Double.class || targetType == double.class) {
-                    return (T) Double.valueOf(num.doubleValue());
-                } else if (targetType == Long.class || targetType == long.class) {
-                    return (T) Long.valueOf(num.longValue());
-                } else if (targetType == Float.class || targetType == float.class) {
-                    return (T) Float.valueOf(num.floatValue());
-                }
+            switch (property.kind) {
+                case INT: field.setInt(instance, reader.nextInt()); break;
+                case LONG: field.setLong(instance, reader.nextLong()); break;
+                case DOUBLE: field.setDouble(instance, reader.nextDouble()); break;
+                case FLOAT: field.setFloat(instance, (float) reader.nextDouble()); break;
+                case BOOLEAN: field.setBoolean(instance, reader.nextBoolean()); break;
+                case STRING: field.set(instance, reader.nextString()); break;
+                case SYMBOL: field.set(instance, reader.nextSymbol()); break;
+                case LIST: field.set(instance, readList(reader, property.elementType)); break;
+                case BEAN: field.set(instance, readElement(reader, property.type)); break;
+                default: field.set(instance, readElement(reader, property.type)); break;
             }
+        } catch (IllegalAccessException e) {
+            throw new JSONException("Failed to set field: " + property.name, e);
+        }
+    }
+
+    private Object readScalar(JsonReader reader, Class<?> type) throws JSONException {
+        if (type == String.class) return reader.nextString();
+        if (type == Integer.class || type == int.class) return reader.nextInt();
+        if (type == Double.class || type == double.class) return reader.nextDouble();
+        if (type == Boolean.class || type == boolean.class) return reader.nextBoolean();
+        if (type == Long.class || type == long.class) return reader.nextLong();
+        if (type == Float.class || type == float.class) return (float) reader.nextDouble();
+        throw new JSONException("Unsupported type: " + type);
+    }
 
-            if (value instanceof Boolean) {
-                if (targetType == Boolean.class || targetType == boolean.class) {
-                    return (T) value;
+    private Object readTree(JsonReader reader) throws JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                Map<String, Object> object = new LinkedHashMap<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String key = reader.nextName();
+                    object.put(key, readTree(reader));
                 }
-            }
+                reader.endObject();
+                return object;
+            case BEGIN_ARRAY:
+                List<Object> array = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.add(readTree(reader));
+                }
+                reader.endArray();
+                return array;
+            case STRING: return reader.nextString();
+            case NUMBER: return reader.nextNumber();
+            case BOOLEAN: return reader.nextBoolean();
+            case NULL: reader.nextNull(); return null;
+            default: throw new JSONException("Unexpected token: " + reader.peek());
+        }
+    }
 
-            // Try parsing from string
-            String str = value.toString();
-            if (targetType == Integer.class || targetType == int.class) {
-                return (T) Integer.valueOf(Integer.parseInt(str));
-            } else if (targetType == Double.class || targetType == double.class) {
-                return (T) Double.valueOf(Double.parseDouble(str));
-            } else if (targetType == Boolean.class || targetType == boolean.class) {
-                return (T) Boolean.valueOf(Boolean.parseBoolean(str));
-            } else if (targetType == Long.class || targetType == long.class) {
-                return (T) Long.valueOf(Long.parseLong(str));
-            } else if (targetType == Float.class || targetType == float.class) {
-                return (T) Float.valueOf(Float.parseFloat(str));
-            }
+    private void write(JsonWriter writer, Object value) throws JSONException {
+        if (value == null) writer.nullValue();
+        else if (value instanceof String str) writer.value(str);
+        else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writer.value(((Number) value).longValue());
+        }
+        else if (value instanceof Double num) writer.value(num.doubleValue());
+        else if (value instanceof Number num) writer.value(num);
+        else if (value instanceof Boolean bool) writer.value(bool.booleanValue());
+        else if (value instanceof Map<?, ?> map) writeMap(writer, map);
+        else if (value instanceof List<?> list) writeList(writer, list);
+        else if (value.getClass().isArray()) writeArray(writer, value);
+        else writeBean(writer, value);
+    }
 
-            throw new JSONException("Unsupported type: " + targetType);
-        } catch (NumberFormatException e) {
-            throw new JSONException("Invalid number format: " + value, e);
+    @SuppressWarnings("unchecked")
+    private <T> void writeBean(JsonWriter writer, T bean) throws JSONException {
+        JsonCodec<T> codec = codec((Class<T>) bean.getClass());
+        if (codec != null) {
+            codec.write(writer, bean);
+        } else {
+            writeBean(writer, bean, descriptor(bean.getClass()));
         }
     }
 
-    private String beanToJson(Object bean) throws JSONException {
+    // Fields are read straight off the bean, primitives without boxing
+    private void writeBean(JsonWriter writer, Object bean, BeanDescriptor<?> descriptor) throws JSONException {
         try {
-            Map<String, Object> map = new LinkedHashMap<>();
-            for (Field field : bean.getClass().getDeclaredFields()) {
-                field.setAccessible(true);
-                map.put(field.getName(), field.get(bean));
+            writer.beginObject();
+            for (BeanDescriptor.Property property : descriptor.properties) {
+                Field field = property.field;
+                writer.name(property.name);
+                switch (property.kind) {
+                    case INT: writer.value(field.getInt(bean)); break;
+                    case LONG: writer.value(field.getLong(bean)); break;
+                    case DOUBLE: writer.value(field.getDouble(bean)); break;
+                    case BOOLEAN: writer.value(field.getBoolean(bean)); break;
+                    case STRING: case SYMBOL: writer.value((String) field.get(bean)); break;
+                    default: write(writer, field.get(bean)); break;
+                }
             }
-            return mapToJson(map);
-        } catch (Exception e) {
+            writer.endObject();
+        } catch (IllegalAccessException e) {
             throw new JSONException("Failed to serialize bean", e);
         }
     }
 
-    private String mapToJson(Map<?, ?> map) throws JSONException {
-        StringBuilder sb = new StringBuilder("{");
-        boolean first = true;
-
+    private void writeMap(JsonWriter writer, Map<?, ?> map) throws JSONException {
+        writer.beginObject();
         for (Map.Entry<?, ?> entry : map.entrySet()) {
-            if (!first) sb.append(",");
-            first = false;
-
-            sb.append("\"").append(escapeString(entry.getKey().toString())).append("\":");
-            sb.append(writeValueAsString(entry.getValue()));
+            writer.name(entry.getKey().toString());
+            write(writer, entry.getValue());
         }
-
-        sb.append("}");
-        return sb.toString();
+        writer.endObject();
     }
 
-    private String listToJson(List<?> list) throws JSONException {
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < list.size(); i++) {
-            if (i > 0) sb.append(",");
-            sb.append(writeValueAsString(list.get(i)));
+    private void writeList(JsonWriter writer, List<?> list) throws JSONException {
+        writer.beginArray();
+        for (Object item : list) {
+            write(writer, item);
         }
-        sb.append("]");
-        return sb.toString();
+        writer.endArray();
     }
 
-    private String arrayToJson(Object array) throws JSONException {
-        StringBuilder sb = new StringBuilder("[");
+    private void writeArray(JsonWriter writer, Object array) throws JSONException {
+        writer.beginArray();
         int length = Array.getLength(array);
-
         for (int i = 0; i < length; i++) {
-            if (i > 0) sb.append(",");
-            sb.append(writeValueAsString(Array.get(array, i)));
+            write(writer, Array.get(array, i));
         }
-
-        sb.append("]");
-        return sb.toString();
-    }
-
-    private String escapeString(String str) {
-        if (str == null) return "";
-        return str.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\b", "\\b")
-                .replace("\f", "\\f")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+        writer.endArray();
     }
 }
\ No newline at end of file
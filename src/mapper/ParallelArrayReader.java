@@ -0,0 +1,151 @@
+package mapper;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Binds the elements of a top-level UTF-8 JSON array in parallel: one sequential pass finds the element
+// boundaries (tracking string/escape state only), then chunks of elements are bound on a ForkJoinPool
+class ParallelArrayReader<T> {
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ObjectMapper mapper;
+    private final ByteBuffer bytes;
+    private final Class<T> elementType;
+
+    private int[] starts = new int[1024];
+    private int[] ends = new int[1024];
+    private int count;
+
+    ParallelArrayReader(ObjectMapper mapper, ByteBuffer bytes, Class<T> elementType) {
+        this.mapper = mapper;
+        this.bytes = bytes;
+        this.elementType = elementType;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<T> read(ForkJoinPool pool) throws JSONException {
+        scanBoundaries();
+
+        Object[] results = new Object[count];
+        int chunkSize = Math.max(1, count / (pool.getParallelism() * CHUNKS_PER_THREAD));
+        try {
+            pool.invoke(new ChunkTask(results, 0, count, chunkSize));
+        } catch (UncheckedJSONException e) {
+            throw e.getCause();
+        }
+        return new ArrayList<>((List<T>) Arrays.asList(results));
+    }
+
+    // ========== BOUNDARY SCAN ==========
+
+    private void scanBoundaries() throws JSONException {
+        int limit = bytes.limit();
+        int p = skipWhitespace(bytes.position(), limit);
+        if (limit - p >= 3 && bytes.get(p) == (byte) 0xEF && bytes.get(p + 1) == (byte) 0xBB && bytes.get(p + 2) == (byte) 0xBF) {
+            p = skipWhitespace(p + 3, limit); // byte order mark
+        }
+        if (p == limit || bytes.get(p) != '[') throw new JSONException("JSON root is not an array");
+        p++;
+
+        int elementStart = p;
+        int depth = 0;
+        boolean inString = false;
+        for (; p < limit; p++) {
+            byte b = bytes.get(p);
+            if (inString) {
+                if (b == '\\') p++;
+                else if (b == '"') inString = false;
+                continue;
+            }
+            switch (b) {
+                case '"': inString = true; break;
+                case '{': case '[': depth++; break;
+                case '}': case ']':
+                    if (depth > 0) {
+                        depth--;
+                        break;
+                    }
+                    if (b != ']') throw new JSONException("Unexpected '}' at offset " + p);
+                    // an empty last element is only allowed for an empty array, otherwise the reader reports it
+                    if (count > 0 || skipWhitespace(elementStart, p) < p) add(elementStart, p);
+                    if (skipWhitespace(p + 1, limit) != limit) {
+                        throw new JSONException("Unexpected trailing content at offset " + (p + 1));
+                    }
+                    return;
+                case ',':
+                    if (depth == 0) {
+                        add(elementStart, p);
+                        elementStart = p + 1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        throw new JSONException("Unexpected end of input at offset " + limit);
+    }
+
+    private int skipWhitespace(int p, int limit) {
+        while (p < limit) {
+            byte b = bytes.get(p);
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') break;
+            p++;
+        }
+        return p;
+    }
+
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    // ========== BINDING ==========
+
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] results;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        ChunkTask(Object[] results, int from, int to, int chunkSize) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                bindChunk();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(results, from, middle, chunkSize), new ChunkTask(results, middle, to, chunkSize));
+        }
+
+        private void bindChunk() {
+            JsonReader reader = new JsonReader(bytes.duplicate());
+            try {
+                for (int i = from; i < to; i++) {
+                    reader.reset(starts[i], ends[i]);
+                    results[i] = mapper.readElement(reader, elementType);
+                    reader.peek(); // the element must span its whole range
+                }
+            } catch (JSONException e) {
+                throw new UncheckedJSONException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package mapper;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Canonical instances for strings that repeat across many beans. Each distinct value is stored once and numbered,
+// so every field bound through the table shares one String, equal symbols are the same object, and a symbol can
+// stand in as a small int code. Entries are never evicted: meant for states, categories and names, not free text.
+// Lookups take no lock and may run on any thread.
+public final class SymbolTable {
+    public static final SymbolTable SHARED = new SymbolTable();
+
+    private static final class Symbol {
+        final String value;
+        final int code;
+        volatile String lowerCase; // canonical lower-case form, filled on first use
+
+        Symbol(String value, int code) {
+            this.value = value;
+            this.code = code;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Symbol> symbols = new ConcurrentHashMap<>();
+    private volatile String[] byCode = new String[64];
+
+    // The canonical instance equal to value, adding it when new; null stays null
+    public String intern(String value) {
+        return value == null ? null : symbol(value).value;
+    }
+
+    // The canonical instance of value's lower-case form (Locale.ROOT), cached so repeat calls allocate nothing
+    public String internLowerCase(String value) {
+        return value == null ? null : lowerCase(symbol(value));
+    }
+
+    // Like internLowerCase, but null when value is not in the table; for text that should not be added
+    public String lowerCaseIfPresent(String value) {
+        Symbol symbol = value == null ? null : symbols.get(value);
+        return symbol == null ? null : lowerCase(symbol);
+    }
+
+    // Dense code of value, from 0 in order of first sight, adding it when new
+    public int code(String value) {
+        return symbol(value).code;
+    }
+
+    // Code of value, or -1 when it is not in the table
+    public int codeIfPresent(String value) {
+        Symbol symbol = value == null ? null : symbols.get(value);
+        return symbol == null ? -1 : symbol.code;
+    }
+
+    public String valueOf(int code) {
+        if (code < 0 || code >= size()) throw new IndexOutOfBoundsException("No symbol with code " + code);
+        return byCode[code]; // published before the symbol is, so a counted code is always in the array
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    // ========== PRIVATE HELPERS ==========
+
+    private Symbol symbol(String value) {
+        Symbol symbol = symbols.get(value);
+        return symbol != null ? symbol : add(value);
+    }
+
+    private synchronized Symbol add(String value) {
+        Symbol symbol = symbols.get(value);
+        if (symbol != null) return symbol;
+
+        value = value.intern(); // the same instance as an equal string literal, e.g. task.state = "completed"
+        int code = symbols.size();
+        String[] values = byCode;
+        if (code == values.length) values = Arrays.copyOf(values, code * 2);
+        values[code] = value;
+        byCode = values;
+        symbol = new Symbol(value, code);
+        symbols.put(value, symbol);
+        return symbol;
+    }
+
+    private String lowerCase(Symbol symbol) {
+        String lowerCase = symbol.lowerCase;
+        if (lowerCase == null) {
+            lowerCase = symbol(symbol.value.toLowerCase(Locale.ROOT)).value;
+            symbol.lowerCase = lowerCase;
+        }
+        return lowerCase;
+    }
+}
@@ -0,0 +1,11 @@
+package mapper;
+
+// Carries a JSONException out of Iterator/Stream methods that cannot throw checked exceptions
+public class UncheckedJSONException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedJSONException(JSONException cause) { super(cause.getMessage(), cause); }
+
+    @Override
+    public synchronized JSONException getCause() { return (JSONException) super.getCause(); }
+}